@@ -0,0 +1,21 @@
+package com.rqlite;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * BlobSink receives BLOB cells of a query response as they are decoded.
+ *
+ * rqlite returns BLOB values base64-encoded. When a sink is set, cells in
+ * columns of type "blob" are decoded while the response is streamed, and the
+ * value returned by {@link #close(OutputStream)} is stored in the cell instead
+ * of the encoded String.
+ */
+public interface BlobSink {
+
+    /** Open returns the stream the decoded bytes of one BLOB cell are written to. */
+    public OutputStream open(int result, int row, int column) throws IOException;
+
+    /** Close is called once the cell is fully decoded, and returns the cell value. */
+    public Object close(OutputStream out) throws IOException;
+}
@@ -0,0 +1,67 @@
+package com.rqlite;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * DirectBufferBlobSink decodes each BLOB cell into a direct ByteBuffer, so the
+ * bytes are held off-heap. Cells are returned flipped and ready for reading.
+ */
+public class DirectBufferBlobSink implements BlobSink {
+
+    private final int initialCapacity;
+
+    public DirectBufferBlobSink() {
+        this(8192);
+    }
+
+    public DirectBufferBlobSink(int initialCapacity) {
+        this.initialCapacity = Math.max(16, initialCapacity);
+    }
+
+    @Override
+    public OutputStream open(int result, int row, int column) {
+        return new BufferStream(initialCapacity);
+    }
+
+    @Override
+    public Object close(OutputStream out) {
+        ByteBuffer buffer = ((BufferStream) out).buffer;
+        buffer.flip();
+        return buffer;
+    }
+
+    private static class BufferStream extends OutputStream {
+        private ByteBuffer buffer;
+
+        BufferStream(int capacity) {
+            this.buffer = ByteBuffer.allocateDirect(capacity);
+        }
+
+        private void ensure(int len) {
+            if (buffer.remaining() >= len) {
+                return;
+            }
+            int capacity = buffer.capacity();
+            while (capacity - buffer.position() < len) {
+                capacity *= 2;
+            }
+            ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+
+        @Override
+        public void write(int b) {
+            ensure(1);
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensure(len);
+            buffer.put(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.rqlite;
+
+/**
+ * This exception is thrown when rqlite-java sheds a request because the node
+ * it would be sent to is already at its concurrency limit.
+ **/
+public class RequestRejectedException extends NodeUnavailableException {
+    public RequestRejectedException(String message){
+        super(message);
+    }
+}
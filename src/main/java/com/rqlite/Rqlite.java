@@ -3,6 +3,7 @@ package com.rqlite;
 import com.rqlite.dto.ExecuteResults;
 import com.rqlite.dto.ParameterizedStatement;
 import com.rqlite.dto.Pong;
+import com.rqlite.dto.QueryCursor;
 import com.rqlite.dto.QueryResults;
 
 public interface Rqlite {
@@ -43,6 +44,16 @@ public interface Rqlite {
     /** Query executes multiple paramaterized statement that returns rows. */
     public QueryResults Query(ParameterizedStatement[] q, boolean tx, ReadConsistencyLevel lvl) throws NodeUnavailableException;
 
+    /** Cursor executes multiple statements and returns a cursor that reads their rows one at a time. */
+    public default QueryCursor Cursor(String[] q, boolean tx, ReadConsistencyLevel lvl) throws NodeUnavailableException {
+        throw new UnsupportedOperationException("Cursor");
+    }
+
+    /** Cursor executes multiple paramaterized statements and returns a cursor that reads their rows one at a time. */
+    public default QueryCursor Cursor(ParameterizedStatement[] q, boolean tx, ReadConsistencyLevel lvl) throws NodeUnavailableException {
+        throw new UnsupportedOperationException("Cursor");
+    }
+
     /** Execute executes a single statement that does not return rows. */
     public ExecuteResults Execute(String q) throws NodeUnavailableException;
 
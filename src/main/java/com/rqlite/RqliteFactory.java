@@ -1,6 +1,10 @@
 package com.rqlite;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.rqlite.impl.RqliteImpl;
+import com.rqlite.impl.ShardedRqliteImpl;
 
 public enum RqliteFactory {
     INSTANCE;
@@ -23,4 +27,43 @@ public enum RqliteFactory {
     public static Rqlite connect(final String config) {
         return new RqliteImpl(config);
     }
+
+    /**
+     * Create a client from a config file of peers. If prewarm is true,
+     * connections to every peer are opened in the background so the first
+     * requests after startup or failover do not pay for TCP and TLS setup.
+     */
+    public static Rqlite connect(final String config, final boolean prewarm) {
+        RqliteImpl rqlite = new RqliteImpl(config);
+        if (prewarm) {
+            rqlite.prewarm(RqliteImpl.PREWARM_CONNECTIONS);
+        }
+        return rqlite;
+    }
+
+    /**
+     * Create a connection to a rqlite node. If prewarm is true, connections to
+     * the node are opened in the background so the first requests do not pay
+     * for TCP and TLS setup.
+     */
+    public static Rqlite connect(final String proto, final String host, final Integer port, final boolean prewarm) {
+        RqliteImpl rqlite = new RqliteImpl(proto, host, port);
+        if (prewarm) {
+            rqlite.prewarm(RqliteImpl.PREWARM_CONNECTIONS);
+        }
+        return rqlite;
+    }
+
+    /**
+     * Create a client for several rqlite clusters, one config file of peers per
+     * cluster. Keys are routed to shards by hash, so the order of the config
+     * files must stay the same.
+     */
+    public static ShardedRqlite connectSharded(final String... configs) {
+        List<Rqlite> shards = new ArrayList<>();
+        for (String config : configs) {
+            shards.add(new RqliteImpl(config));
+        }
+        return new ShardedRqliteImpl(shards);
+    }
 }
@@ -0,0 +1,40 @@
+package com.rqlite;
+
+import com.rqlite.Rqlite.ReadConsistencyLevel;
+import com.rqlite.dto.ExecuteResults;
+import com.rqlite.dto.ParameterizedStatement;
+import com.rqlite.dto.QueryResults;
+
+/**
+ * ShardedRqlite spreads data over several independent rqlite clusters. Each
+ * Query and Execute is routed by a shard key to the one cluster holding it,
+ * while QueryAll runs on every cluster at once and merges the results.
+ */
+public interface ShardedRqlite {
+
+    public int shardCount();
+
+    /** The index of the shard that holds key. */
+    public int shardFor(Object key);
+
+    /** The client for the shard at index. */
+    public Rqlite shard(int index);
+
+    public QueryResults Query(Object key, String[] q, boolean tx, ReadConsistencyLevel lvl) throws NodeUnavailableException;
+
+    public QueryResults Query(Object key, ParameterizedStatement[] q, boolean tx, ReadConsistencyLevel lvl) throws NodeUnavailableException;
+
+    public ExecuteResults Execute(Object key, String[] q, boolean tx) throws NodeUnavailableException;
+
+    public ExecuteResults Execute(Object key, ParameterizedStatement[] q, boolean tx) throws NodeUnavailableException;
+
+    /**
+     * Runs the statements on every shard in parallel. For each statement the
+     * rows of all shards are concatenated in shard order; ORDER BY, LIMIT and
+     * aggregates apply per shard only. If any shard reports an error for a
+     * statement, that statement's result carries the error instead of rows.
+     */
+    public QueryResults QueryAll(String[] q, ReadConsistencyLevel lvl) throws NodeUnavailableException;
+
+    public QueryResults QueryAll(ParameterizedStatement[] q, ReadConsistencyLevel lvl) throws NodeUnavailableException;
+}
@@ -23,4 +23,10 @@ public class ExecuteResults implements GenericResults {
 
     @Key
     public float time;
+
+    /**
+     * Spooled is true when no node was reachable and the statements were written
+     * to the client's write spool, to be executed once the cluster is back.
+     */
+    public boolean spooled;
 }
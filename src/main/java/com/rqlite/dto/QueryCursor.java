@@ -0,0 +1,36 @@
+package com.rqlite.dto;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * QueryCursor reads the results of a query one row at a time, instead of
+ * materializing every row as QueryResults does. A cursor holds the response
+ * open, so it must be closed when the caller is done with it.
+ */
+public interface QueryCursor extends GenericResults, Closeable {
+
+    /**
+     * NextResult advances to the result of the next statement, skipping any
+     * rows left unread in the current one. Returns false when no statements remain.
+     */
+    public boolean nextResult() throws IOException;
+
+    /**
+     * Next advances to the next row of the current result, moving to the first
+     * result if nextResult has not been called yet. Returns false when no rows remain.
+     */
+    public boolean next() throws IOException;
+
+    /** Row returns the values of the current row. */
+    public Object[] row();
+
+    /** Columns returns the column names of the current result. */
+    public String[] columns();
+
+    /** Types returns the column types of the current result. */
+    public String[] types();
+
+    /** Error returns the error of the current result, or null if it succeeded. */
+    public String error();
+}
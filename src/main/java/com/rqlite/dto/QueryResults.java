@@ -23,4 +23,7 @@ public class QueryResults implements GenericResults {
 
     @Key
     public Result[] results;
+
+    @Key
+    public float time;
 }
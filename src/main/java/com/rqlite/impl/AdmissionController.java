@@ -0,0 +1,228 @@
+package com.rqlite.impl;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.rqlite.RequestRejectedException;
+
+/**
+ * AdmissionController limits the requests in flight to each node. The limit
+ * adapts to observed latency: it grows by about one per round trip while
+ * latency stays near the best seen, and shrinks multiplicatively when latency
+ * rises or requests fail. Requests over the limit wait in a queue ordered by
+ * priority, so interactive reads are admitted ahead of bulk writes. When the
+ * queue is full the lowest-priority waiter is shed, and waiters that cannot be
+ * admitted in time are rejected rather than left to pile up.
+ */
+public class AdmissionController {
+
+    /** Priority of a request; lower ordinals are admitted first. */
+    public enum Priority {
+        INTERACTIVE, NORMAL, BULK
+    }
+
+    /** Permit is held while a request is in flight and must be released exactly once. */
+    public interface Permit {
+        void release(boolean success);
+    }
+
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final double tolerance = 2.0;
+    private final double backoff = 0.9;
+
+    private final Map<Object, Limiter> limiters = new ConcurrentHashMap<>();
+
+    public AdmissionController() {
+        this(20, 1, 200, 1000, 1000);
+    }
+
+    /**
+     * @param initialLimit requests allowed in flight per node before any latency is observed
+     * @param minLimit the lowest the limit may shrink to
+     * @param maxLimit the highest the limit may grow to
+     * @param maxQueue requests allowed to wait per node before shedding
+     * @param maxWaitMillis how long a request may wait for admission before it is rejected
+     */
+    public AdmissionController(int initialLimit, int minLimit, int maxLimit, int maxQueue, long maxWaitMillis) {
+        this.initialLimit = initialLimit;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    }
+
+    /** Acquire admits a request to node, waiting if the node is at its limit. */
+    public Permit acquire(Object node, Priority priority) throws RequestRejectedException {
+        return limiters.computeIfAbsent(node, n -> new Limiter()).acquire(priority);
+    }
+
+    /**
+     * Hold keeps permit in flight after its request has returned, e.g. while a
+     * cursor streams the response, and returns the action that releases it.
+     * The latency of the request is sampled now rather than on release.
+     */
+    static Runnable hold(Permit permit) {
+        if (permit instanceof Limiter.NodePermit) {
+            return ((Limiter.NodePermit) permit).hold();
+        }
+        return () -> permit.release(true);
+    }
+
+    /** Limit returns the current concurrency limit of node. */
+    public int getLimit(Object node) {
+        Limiter limiter = limiters.get(node);
+        return limiter == null ? initialLimit : limiter.currentLimit();
+    }
+
+    private static final class Waiter {
+        final Priority priority;
+        final long sequence;
+        int state; // 0 waiting, 1 admitted, 2 shed
+
+        Waiter(Priority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final Comparator<Waiter> ORDER = Comparator
+            .<Waiter>comparingInt(w -> w.priority.ordinal())
+            .thenComparingLong(w -> w.sequence);
+
+    private final class Limiter {
+        private final PriorityQueue<Waiter> queue = new PriorityQueue<>(ORDER);
+        private double limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        private int inflight;
+        private long sequence;
+        private long minRttNanos = Long.MAX_VALUE;
+        private int samples;
+
+        synchronized int currentLimit() {
+            return (int) limit;
+        }
+
+        Permit acquire(Priority priority) throws RequestRejectedException {
+            Waiter waiter;
+            synchronized (this) {
+                if (queue.isEmpty() && inflight < (int) limit) {
+                    inflight++;
+                    return new NodePermit();
+                }
+                if (queue.size() >= maxQueue) {
+                    Waiter lowest = null;
+                    for (Waiter w : queue) {
+                        if (lowest == null || ORDER.compare(w, lowest) > 0) {
+                            lowest = w;
+                        }
+                    }
+                    if (lowest == null || lowest.priority.ordinal() <= priority.ordinal()) {
+                        throw new RequestRejectedException("Request shed: admission queue is full.");
+                    }
+                    queue.remove(lowest);
+                    signal(lowest, 2);
+                }
+                waiter = new Waiter(priority, sequence++);
+                queue.add(waiter);
+            }
+
+            long deadline = System.nanoTime() + maxWaitNanos;
+            boolean interrupted = false;
+            synchronized (waiter) {
+                long remaining;
+                while (waiter.state == 0 && (remaining = deadline - System.nanoTime()) > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(waiter, remaining);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                        break;
+                    }
+                }
+            }
+            synchronized (this) {
+                if (waiter.state == 0) {
+                    queue.remove(waiter);
+                    waiter.state = 2;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (waiter.state == 1) {
+                return new NodePermit();
+            }
+            throw new RequestRejectedException("Request shed: not admitted within the admission timeout.");
+        }
+
+        private void signal(Waiter waiter, int state) {
+            synchronized (waiter) {
+                waiter.state = state;
+                waiter.notify();
+            }
+        }
+
+        synchronized void release(long rttNanos, boolean success) {
+            sample(rttNanos, success);
+            free();
+        }
+
+        private void sample(long rttNanos, boolean success) {
+            if (success) {
+                if (rttNanos < minRttNanos) {
+                    minRttNanos = rttNanos;
+                }
+                if (rttNanos <= minRttNanos * tolerance) {
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                } else {
+                    limit = Math.max(minLimit, limit * backoff);
+                }
+                // let the baseline drift so a permanently slower node is not treated as overloaded
+                if (++samples >= 1000) {
+                    samples = 0;
+                    minRttNanos = rttNanos;
+                }
+            } else {
+                limit = Math.max(minLimit, limit * backoff);
+            }
+        }
+
+        synchronized void free() {
+            inflight--;
+            while (inflight < (int) limit && !queue.isEmpty()) {
+                inflight++;
+                signal(queue.poll(), 1);
+            }
+        }
+
+        final class NodePermit implements Permit {
+            private final long start = System.nanoTime();
+            private boolean released;
+
+            @Override
+            public void release(boolean success) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                Limiter.this.release(System.nanoTime() - start, success);
+            }
+
+            Runnable hold() {
+                if (released) {
+                    return () -> { };
+                }
+                released = true;
+                synchronized (Limiter.this) {
+                    Limiter.this.sample(System.nanoTime() - start, true);
+                }
+                return Limiter.this::free;
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.rqlite.impl;
+
+import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpResponse;
+import com.rqlite.BlobSink;
+import com.rqlite.Rqlite.ReadConsistencyLevel;
+import com.rqlite.dto.QueryCursor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+public class CursorRequest extends GenericRequest {
+
+    private HttpRequest httpRequest;
+    private BlobSink blobSink;
+    private long spillThreshold;
+    private Path spillDirectory;
+
+    public CursorRequest(HttpRequest request) {
+        this.httpRequest = request;
+    }
+
+    public QueryCursor execute() throws IOException {
+        HttpResponse response = this.httpRequest.execute();
+        this.respondedNanos = System.nanoTime();
+        InputStream in = response.getContent();
+        if (in != null && this.spillThreshold > 0) {
+            in = SpillFile.buffer(in, this.spillThreshold, this.spillDirectory);
+        }
+        return new StreamingQueryCursor(in, this.blobSink);
+    }
+
+    public String getUrl() {
+        return this.httpRequest.getUrl().toString();
+    }
+
+    public void setUrl(GenericUrl url){
+        this.httpRequest.setUrl(url);
+    }
+
+    public String getMethod() {
+        return this.httpRequest.getRequestMethod();
+    }
+
+    public String getBody() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        this.httpRequest.getContent().writeTo(stream);
+        return stream.toString();
+    }
+
+    byte[] getContent() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        this.httpRequest.getContent().writeTo(stream);
+        return stream.toByteArray();
+    }
+
+    byte[] encode() throws IOException {
+        byte[] body = this.getContent();
+        this.httpRequest.setContent(new ByteArrayContent(this.httpRequest.getContent().getType(), body));
+        return body;
+    }
+
+    public CursorRequest enableTimings(Boolean tm) {
+        if (tm) {
+            this.httpRequest.getUrl().put("timings", tm.toString());
+        } else {
+            this.httpRequest.getUrl().remove("timings");
+        }
+        return this;
+    }
+
+    public CursorRequest setBlobSink(BlobSink blobSink) {
+        this.blobSink = blobSink;
+        return this;
+    }
+
+    /**
+     * Read responses larger than threshold bytes into a temporary file in dir
+     * before returning the cursor. A threshold of zero or less streams rows
+     * straight from the connection.
+     */
+    public CursorRequest setSpillThreshold(long threshold, Path dir) {
+        this.spillThreshold = threshold;
+        this.spillDirectory = dir;
+        return this;
+    }
+
+    public CursorRequest setReadConsistencyLevel(ReadConsistencyLevel lvl) {
+        this.httpRequest.getUrl().put("level", lvl.toString().toLowerCase());
+        return this;
+    }
+
+    public CursorRequest enableTransaction(Boolean tx) {
+        if (tx) {
+            this.httpRequest.getUrl().put("transaction", tx.toString());
+        } else {
+            this.httpRequest.getUrl().remove("transaction");
+        }
+        return this;
+    }
+}
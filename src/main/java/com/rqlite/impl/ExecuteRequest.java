@@ -1,5 +1,6 @@
 package com.rqlite.impl;
 
+import com.google.api.client.http.ByteArrayContent;
 import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.HttpRequest;
 import com.google.api.client.http.HttpResponse;
@@ -7,6 +8,7 @@ import com.rqlite.dto.ExecuteResults;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
 public class ExecuteRequest extends GenericRequest{
 
@@ -18,7 +20,10 @@ public class ExecuteRequest extends GenericRequest{
 
     public ExecuteResults execute() throws IOException {
         HttpResponse response = this.httpRequest.execute();
-        return response.parseAs(ExecuteResults.class);
+        this.respondedNanos = System.nanoTime();
+        try (InputStream in = response.getContent()) {
+            return ResultsDecoder.decodeExecute(in);
+        }
     }
 
     public String getUrl() {
@@ -39,6 +44,18 @@ public class ExecuteRequest extends GenericRequest{
         return stream.toString();
     }
 
+    byte[] getContent() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        this.httpRequest.getContent().writeTo(stream);
+        return stream.toByteArray();
+    }
+
+    byte[] encode() throws IOException {
+        byte[] body = this.getContent();
+        this.httpRequest.setContent(new ByteArrayContent(this.httpRequest.getContent().getType(), body));
+        return body;
+    }
+
     public ExecuteRequest enableTransaction(Boolean tx) {
         if (tx) {
             this.httpRequest.getUrl().put("transaction", tx.toString());
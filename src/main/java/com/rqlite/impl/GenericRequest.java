@@ -10,6 +10,10 @@ abstract class GenericRequest {
 
     private HttpRequest httpRequest;
 
+    // set by RqliteImpl when tracing; respondedNanos is when headers arrived
+    RequestTrace trace;
+    long respondedNanos;
+
     protected abstract GenericResults execute() throws IOException;
     public String getUrl() {
         return this.httpRequest.getUrl().toString();
@@ -17,4 +21,12 @@ abstract class GenericRequest {
     public void setUrl(GenericUrl url){
         this.httpRequest.setUrl(url);
     }
+
+    /**
+     * Serializes the request body ahead of sending it, so encoding can be
+     * timed apart from the network, and returns it. Null if there is no body.
+     */
+    byte[] encode() throws IOException {
+        return null;
+    }
 }
@@ -0,0 +1,191 @@
+package com.rqlite.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.rqlite.dto.ExecuteResults;
+import com.rqlite.dto.ParameterizedStatement;
+import com.rqlite.dto.TypedStatement;
+
+/**
+ * InsertBatcher rewrites runs of consecutive single-row INSERT statements with
+ * identical SQL into multi-row INSERTs, and maps the results of the rewritten
+ * statements back onto the original ones.
+ */
+final class InsertBatcher {
+
+    // SQLITE_MAX_VARIABLE_NUMBER before SQLite 3.32
+    static final int MAX_PARAMETERS = 999;
+
+    // a table or schema name, bare or quoted
+    private static final String NAME = "(?:\"[^\"]*\"|`[^`]*`|\\[[^\\]]*\\]|[\\w$]+)";
+
+    // INSERT [OR REPLACE|ABORT|ROLLBACK] INTO ... VALUES (?, ...) with nothing
+    // after the row; OR IGNORE and OR FAIL are left alone as the number of
+    // rows they insert cannot be spread back over the statements.
+    private static final Pattern SINGLE_ROW_INSERT = Pattern.compile(
+            "\\s*INSERT\\s+(?:OR\\s+(?:REPLACE|ABORT|ROLLBACK)\\s+)?INTO\\s+" + NAME + "(?:\\s*\\.\\s*" + NAME + ")?"
+                    + "\\s*(?:\\([^()]*\\))?\\s*VALUES\\s*(\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\))\\s*;?\\s*",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    final ParameterizedStatement[] statements;
+    // rows[i] is the number of original statements behind statements[i]
+    private final int[] rows;
+    private final int originalCount;
+
+    private InsertBatcher(ParameterizedStatement[] statements, int[] rows, int originalCount) {
+        this.statements = statements;
+        this.rows = rows;
+        this.originalCount = originalCount;
+    }
+
+    /**
+     * Returns the rewritten batch, or null if no statements can be combined.
+     */
+    static InsertBatcher rewrite(ParameterizedStatement[] stmts, int maxParameters) {
+        List<ParameterizedStatement> out = new ArrayList<>();
+        List<Integer> rows = new ArrayList<>();
+        boolean rewritten = false;
+        int i = 0;
+        while (i < stmts.length) {
+            int end = i + 1;
+            while (end < stmts.length && sameShape(stmts[i], stmts[end])) {
+                end++;
+            }
+            Matcher m = end - i > 1 ? SINGLE_ROW_INSERT.matcher(stmts[i].query) : null;
+            int width = parameterCount(stmts[i]);
+            int perChunk = width == 0 ? 0 : maxParameters / width;
+            if (m == null || !m.matches() || perChunk < 2 || width != placeholders(m.group(1))) {
+                for (; i < end; i++) {
+                    out.add(stmts[i]);
+                    rows.add(1);
+                }
+                continue;
+            }
+            while (i < end) {
+                int n = Math.min(perChunk, end - i);
+                out.add(n == 1 ? stmts[i] : combine(stmts, i, n, m));
+                rows.add(n);
+                rewritten |= n > 1;
+                i += n;
+            }
+        }
+        if (!rewritten) {
+            return null;
+        }
+        int[] counts = new int[rows.size()];
+        for (int j = 0; j < counts.length; j++) {
+            counts[j] = rows.get(j);
+        }
+        return new InsertBatcher(out.toArray(new ParameterizedStatement[out.size()]), counts, stmts.length);
+    }
+
+    /**
+     * Expands results for the rewritten statements into one result per
+     * original statement. Each row of a combined INSERT gets rows_affected 1.
+     * Only its last row gets the combined last_insert_id; the others get 0, as
+     * their rowids cannot be counted back when the INSERT sets the rowid or an
+     * INTEGER PRIMARY KEY itself. An error is reported on every row of its
+     * statement.
+     */
+    ExecuteResults expand(ExecuteResults results) {
+        if (results == null || results.results == null) {
+            return results;
+        }
+        if (results.spooled) {
+            return RqliteImpl.spooled(originalCount);
+        }
+        ExecuteResults expanded = new ExecuteResults();
+        expanded.time = results.time;
+        List<ExecuteResults.Result> list = new ArrayList<>(originalCount);
+        for (int i = 0; i < results.results.length; i++) {
+            ExecuteResults.Result r = results.results[i];
+            int n = i < rows.length ? rows[i] : 1;
+            if (n == 1 || r == null) {
+                list.add(r);
+                continue;
+            }
+            for (int row = 0; row < n; row++) {
+                ExecuteResults.Result part = new ExecuteResults.Result();
+                part.error = r.error;
+                part.time = r.time / n;
+                if (r.error == null) {
+                    part.rowsAffected = 1;
+                    part.lastInsertId = row == n - 1 ? r.lastInsertId : 0;
+                }
+                list.add(part);
+            }
+        }
+        expanded.results = list.toArray(new ExecuteResults.Result[list.size()]);
+        return expanded;
+    }
+
+    private static ParameterizedStatement combine(ParameterizedStatement[] stmts, int from, int n, Matcher m) {
+        String sql = stmts[from].query;
+        StringBuilder combined = new StringBuilder(sql.length() + n * (m.group(1).length() + 1));
+        combined.append(sql, 0, m.end(1));
+        for (int i = 1; i < n; i++) {
+            combined.append(',').append(m.group(1));
+        }
+        combined.append(sql, m.end(1), sql.length());
+
+        if (stmts[from] instanceof TypedStatement) {
+            int width = ((TypedStatement) stmts[from]).parameterCount();
+            TypedStatement typed = new TypedStatement(combined.toString(), width * n);
+            for (int i = from; i < from + n; i++) {
+                copyBindings((TypedStatement) stmts[i], typed);
+            }
+            return typed;
+        }
+        int width = stmts[from].arguments.length;
+        Object[] arguments = new Object[width * n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(stmts[from + i].arguments, 0, arguments, i * width, width);
+        }
+        return new ParameterizedStatement(combined.toString(), arguments);
+    }
+
+    private static void copyBindings(TypedStatement from, TypedStatement to) {
+        for (int i = 0; i < from.parameterCount(); i++) {
+            switch (from.kind(i)) {
+                case LONG:
+                    to.bindLong(from.getLong(i));
+                    break;
+                case DOUBLE:
+                    to.bindDouble(from.getDouble(i));
+                    break;
+                case STRING:
+                    to.bindString((String) from.getObject(i));
+                    break;
+                case BYTES:
+                    to.bindBytes((byte[]) from.getObject(i));
+                    break;
+                default:
+                    to.bindNull();
+            }
+        }
+    }
+
+    private static boolean sameShape(ParameterizedStatement a, ParameterizedStatement b) {
+        return a.getClass() == b.getClass() && a.query.equals(b.query) && parameterCount(a) == parameterCount(b);
+    }
+
+    private static int parameterCount(ParameterizedStatement s) {
+        if (s instanceof TypedStatement) {
+            return ((TypedStatement) s).parameterCount();
+        }
+        return s.arguments.length;
+    }
+
+    private static int placeholders(String row) {
+        int count = 0;
+        for (int i = 0; i < row.length(); i++) {
+            if (row.charAt(i) == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,215 @@
+package com.rqlite.impl;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import com.rqlite.NodeUnavailableException;
+import com.rqlite.Rqlite;
+import com.rqlite.Rqlite.ReadConsistencyLevel;
+import com.rqlite.dto.ParameterizedStatement;
+import com.rqlite.dto.QueryResults;
+
+/**
+ * NearCache mirrors small, read-mostly tables into memory, indexed by a key
+ * column, so lookups make no HTTP call. A background thread polls each table
+ * for rows whose watermark column (rowid, or an updated-at column maintained
+ * by the application) is at or above the highest value seen so far.
+ * <p>
+ * With rowid as the watermark only inserted rows are seen, since an UPDATE
+ * keeps the rowid; use an updated-at column set on every write to see updates.
+ * Deleted rows, and rows whose watermark is NULL, are not seen by watermark
+ * polling; call {@link Table#reload()} after deleting, or set a full reload
+ * interval. Numeric keys are normalized,
+ * so get(7), get(7L) and get(new BigDecimal("7.0")) find the same row.
+ */
+public class NearCache implements Closeable {
+
+    private final Rqlite rqlite;
+    private final ReadConsistencyLevel lvl;
+    private final List<Table> tables = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService refresher;
+    private final long fullReloadMillis;
+
+    /**
+     * @param refreshMillis
+     *            how often each table is polled for changes
+     * @param fullReloadMillis
+     *            how often each table is read in full to drop deleted rows;
+     *            zero or less never does
+     */
+    public NearCache(Rqlite rqlite, ReadConsistencyLevel lvl, long refreshMillis, long fullReloadMillis) {
+        this.rqlite = rqlite;
+        this.lvl = lvl;
+        this.fullReloadMillis = fullReloadMillis;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rqlite-near-cache");
+            t.setDaemon(true);
+            return t;
+        });
+        this.refresher.scheduleWithFixedDelay(this::refreshAll, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Loads table and keeps it current. Returns once the first load is done,
+     * so lookups are answered straight away.
+     */
+    public Table register(String table, String keyColumn, String watermarkColumn) throws NodeUnavailableException {
+        Table t = new Table(table, keyColumn, watermarkColumn);
+        t.reload();
+        tables.add(t);
+        return t;
+    }
+
+    /** Polls every table now, on the calling thread. */
+    public void refreshAll() {
+        for (Table t : tables) {
+            try {
+                if (fullReloadMillis > 0 && System.currentTimeMillis() - t.loadedAt >= fullReloadMillis) {
+                    t.reload();
+                } else {
+                    t.refresh();
+                }
+            } catch (NodeUnavailableException | RuntimeException e) {
+                RqliteImpl.LOGGER.log(Level.FINE, "near cache refresh of " + t.name + " failed", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    static Object normalize(Object key) {
+        if (key instanceof BigDecimal) {
+            BigDecimal d = ((BigDecimal) key).stripTrailingZeros();
+            return d.scale() < 0 ? d.setScale(0) : d;
+        }
+        if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            return BigDecimal.valueOf(((Number) key).longValue());
+        }
+        if (key instanceof Number) {
+            return normalize(new BigDecimal(key.toString()));
+        }
+        return key;
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+
+    public final class Table {
+        private final String name;
+        private final String keyColumn;
+        private final String watermarkColumn;
+        private final String selectAll;
+        private final String selectSince;
+        private final String selectWatermarked;
+        private volatile Map<Object, Object[]> rows = new ConcurrentHashMap<>();
+        private volatile String[] columns;
+        private Object watermark;
+        private boolean loaded;
+        private long loadedAt;
+
+        Table(String name, String keyColumn, String watermarkColumn) {
+            this.name = name;
+            this.keyColumn = keyColumn;
+            this.watermarkColumn = watermarkColumn;
+            String select = "SELECT *, " + quote(watermarkColumn) + " FROM " + quote(name);
+            this.selectAll = select + " ORDER BY " + quote(watermarkColumn);
+            // >= so rows sharing the last watermark value are not missed
+            this.selectSince = select + " WHERE " + quote(watermarkColumn) + " >= ? ORDER BY " + quote(watermarkColumn);
+            this.selectWatermarked = select + " WHERE " + quote(watermarkColumn) + " IS NOT NULL ORDER BY " + quote(watermarkColumn);
+        }
+
+        /** The row with the given key, or null. */
+        public Object[] get(Object key) {
+            return rows.get(normalize(key));
+        }
+
+        public String[] columns() {
+            return columns;
+        }
+
+        public int size() {
+            return rows.size();
+        }
+
+        public Collection<Object[]> rows() {
+            return Collections.unmodifiableCollection(rows.values());
+        }
+
+        /** Reads the rows changed since the last poll. */
+        public synchronized void refresh() throws NodeUnavailableException {
+            if (!loaded) {
+                reload();
+                return;
+            }
+            // no watermark yet if the table was empty or had only NULL watermarks
+            ParameterizedStatement stmt = watermark == null ? new ParameterizedStatement(selectWatermarked, null)
+                    : new ParameterizedStatement(selectSince, new Object[] {watermark});
+            apply(query(stmt), rows);
+        }
+
+        /** Reads the whole table again, dropping rows that were deleted. */
+        public synchronized void reload() throws NodeUnavailableException {
+            Map<Object, Object[]> fresh = new ConcurrentHashMap<>();
+            watermark = null;
+            apply(query(new ParameterizedStatement(selectAll, null)), fresh);
+            rows = fresh;
+            loaded = true;
+            loadedAt = System.currentTimeMillis();
+        }
+
+        private QueryResults.Result query(ParameterizedStatement stmt) throws NodeUnavailableException {
+            QueryResults results = rqlite.Query(stmt, lvl);
+            if (results == null || results.results == null || results.results.length == 0) {
+                throw new IllegalStateException("No results reading " + name);
+            }
+            QueryResults.Result r = results.results[0];
+            if (r.error != null) {
+                throw new IllegalStateException("Reading " + name + ": " + r.error);
+            }
+            return r;
+        }
+
+        private void apply(QueryResults.Result r, Map<Object, Object[]> into) {
+            if (r.columns == null) {
+                return;
+            }
+            // the watermark is selected again as the last column, since
+            // SELECT * leaves out rowid
+            int width = r.columns.length - 1;
+            int key = -1;
+            for (int i = 0; i < width; i++) {
+                if (r.columns[i].equalsIgnoreCase(keyColumn)) {
+                    key = i;
+                }
+            }
+            if (key < 0) {
+                throw new IllegalStateException("Table " + name + " has no column " + keyColumn);
+            }
+            columns = Arrays.copyOf(r.columns, width);
+            if (r.values == null) {
+                return;
+            }
+            for (Object[] row : r.values) {
+                into.put(normalize(row[key]), Arrays.copyOf(row, width));
+                if (row[width] != null) {
+                    watermark = row[width];
+                }
+            }
+        }
+    }
+}
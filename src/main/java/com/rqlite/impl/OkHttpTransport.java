@@ -0,0 +1,201 @@
+package com.rqlite.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+
+/**
+ * OkHttpTransport sends requests with OkHttp instead of HttpURLConnection. Over
+ * https it negotiates HTTP/2 with ALPN, so concurrent requests to a node are
+ * multiplexed over one connection rather than needing a socket each. Plain
+ * http, and servers without HTTP/2, use HTTP/1.1 with OkHttp's connection
+ * pool. Select it with {@link RqliteImpl#setHttpTransport}; OkHttp is an
+ * optional dependency and must be on the classpath.
+ */
+public class OkHttpTransport extends HttpTransport {
+
+    // HttpRequest's default timeouts, so most requests use the client as is
+    private static final int DEFAULT_TIMEOUT_MS = 20000;
+
+    private final OkHttpClient client;
+
+    public OkHttpTransport() {
+        // Redirects are left to HttpRequest, which re-sends the POST body to
+        // the leader; OkHttp would follow a 301 with a GET.
+        this(new OkHttpClient.Builder()
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .followRedirects(false)
+                .followSslRedirects(false)
+                .connectTimeout(DEFAULT_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .readTimeout(DEFAULT_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .writeTimeout(DEFAULT_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .build());
+    }
+
+    /**
+     * Use client, for example one with its own SSLSocketFactory or connection
+     * pool. It should not follow redirects, so that a follower's redirect to
+     * the leader is re-sent as a POST.
+     */
+    public OkHttpTransport(OkHttpClient client) {
+        this.client = client;
+    }
+
+    @Override
+    protected LowLevelHttpRequest buildRequest(String method, String url) {
+        return new OkHttpRequest(method, url);
+    }
+
+    @Override
+    public void shutdown() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    private OkHttpClient client(int connectTimeout, int readTimeout) {
+        if (connectTimeout == client.connectTimeoutMillis() && readTimeout == client.readTimeoutMillis()) {
+            return client;
+        }
+        // shares the connection pool and dispatcher of the base client
+        return client.newBuilder()
+                .connectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeout, TimeUnit.MILLISECONDS)
+                .writeTimeout(readTimeout, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    private final class OkHttpRequest extends LowLevelHttpRequest {
+        private final String method;
+        private final Request.Builder builder;
+        private int connectTimeout = client.connectTimeoutMillis();
+        private int readTimeout = client.readTimeoutMillis();
+
+        OkHttpRequest(String method, String url) {
+            this.method = method;
+            this.builder = new Request.Builder().url(url);
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            builder.addHeader(name, value);
+        }
+
+        @Override
+        public void setTimeout(int connectTimeout, int readTimeout) {
+            this.connectTimeout = connectTimeout;
+            this.readTimeout = readTimeout;
+        }
+
+        @Override
+        public LowLevelHttpResponse execute() throws IOException {
+            RequestBody body = null;
+            if (getStreamingContent() != null) {
+                if (getContentEncoding() != null) {
+                    builder.header("Content-Encoding", getContentEncoding());
+                }
+                MediaType type = getContentType() == null ? null : MediaType.parse(getContentType());
+                long length = getContentLength();
+                body = new RequestBody() {
+                    @Override
+                    public MediaType contentType() {
+                        return type;
+                    }
+
+                    @Override
+                    public long contentLength() {
+                        return length;
+                    }
+
+                    @Override
+                    public void writeTo(BufferedSink sink) throws IOException {
+                        getStreamingContent().writeTo(sink.outputStream());
+                    }
+                };
+            } else if ("POST".equals(method) || "PUT".equals(method)) {
+                body = RequestBody.create(null, new byte[0]);
+            }
+            builder.method(method, body);
+            Response response = client(connectTimeout, readTimeout).newCall(builder.build()).execute();
+            return new OkHttpResponse(response);
+        }
+    }
+
+    private static final class OkHttpResponse extends LowLevelHttpResponse {
+        private final Response response;
+        private final Headers headers;
+
+        OkHttpResponse(Response response) {
+            this.response = response;
+            this.headers = response.headers();
+        }
+
+        @Override
+        public InputStream getContent() {
+            return response.body() == null ? null : response.body().byteStream();
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return response.header("Content-Encoding");
+        }
+
+        @Override
+        public long getContentLength() {
+            return response.body() == null ? -1 : response.body().contentLength();
+        }
+
+        @Override
+        public String getContentType() {
+            return response.header("Content-Type");
+        }
+
+        @Override
+        public String getStatusLine() {
+            return response.protocol() + " " + response.code() + " " + response.message();
+        }
+
+        @Override
+        public int getStatusCode() {
+            return response.code();
+        }
+
+        @Override
+        public String getReasonPhrase() {
+            return response.message();
+        }
+
+        @Override
+        public int getHeaderCount() {
+            return headers.size();
+        }
+
+        @Override
+        public String getHeaderName(int index) {
+            return headers.name(index);
+        }
+
+        @Override
+        public String getHeaderValue(int index) {
+            return headers.value(index);
+        }
+
+        @Override
+        public void disconnect() {
+            response.close();
+        }
+    }
+}
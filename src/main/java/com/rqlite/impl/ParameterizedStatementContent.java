@@ -1,17 +1,25 @@
 package com.rqlite.impl;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.api.client.http.AbstractHttpContent;
 import com.rqlite.dto.ParameterizedStatement;
+import com.rqlite.dto.TypedStatement;
 
 public class ParameterizedStatementContent extends AbstractHttpContent {
 
   private final ParameterizedStatement[] stmts;
   private static final JsonFactory JSON_FACTORY = new JsonFactory();
+  // InputStream arguments, read on the first write
+  private final Map<InputStream, byte[]> streams = new IdentityHashMap<>();
 
   protected ParameterizedStatementContent(ParameterizedStatement[] stmts) {
     super("application/json");
@@ -29,9 +37,11 @@ public class ParameterizedStatementContent extends AbstractHttpContent {
     for (ParameterizedStatement s : stmts) {
       json.writeStartArray();
       json.writeString(s.query);
-      if (s.arguments != null) {
+      if (s instanceof TypedStatement) {
+        writeTyped(json, (TypedStatement) s);
+      } else if (s.arguments != null) {
         for (Object arg: s.arguments) {
-          json.writeObject(arg);
+          writeArgument(json, arg);
         }
       }
       json.writeEndArray();
@@ -40,4 +50,98 @@ public class ParameterizedStatementContent extends AbstractHttpContent {
     json.close();
   }
 
+  private static void writeTyped(JsonGenerator json, TypedStatement s) throws IOException {
+    for (int i = 0, n = s.parameterCount(); i < n; i++) {
+      switch (s.kind(i)) {
+        case LONG:
+          json.writeNumber(s.getLong(i));
+          break;
+        case DOUBLE:
+          json.writeNumber(s.getDouble(i));
+          break;
+        case STRING:
+          json.writeString((String) s.getObject(i));
+          break;
+        case BYTES:
+          json.writeBinary((byte[]) s.getObject(i));
+          break;
+        default:
+          json.writeNull();
+      }
+    }
+  }
+
+  /**
+   * Binary arguments are base64-encoded in chunks straight from their source,
+   * so a ByteBuffer argument is never copied into a byte[] first. An
+   * InputStream can only be read once, but the body is written again on
+   * failover, spooling and deduplication, so it is read into a byte[] the
+   * first time and that copy is written from then on.
+   */
+  private void writeArgument(JsonGenerator json, Object arg) throws IOException {
+    // common types first, ahead of writeObject's own type dispatch
+    if (arg instanceof String) {
+      json.writeString((String) arg);
+    } else if (arg instanceof Long || arg instanceof Integer) {
+      json.writeNumber(((Number) arg).longValue());
+    } else if (arg instanceof Double) {
+      json.writeNumber((Double) arg);
+    } else if (arg == null) {
+      json.writeNull();
+    } else if (arg instanceof byte[]) {
+      json.writeBinary((byte[]) arg);
+    } else if (arg instanceof ByteBuffer) {
+      ByteBuffer buf = (ByteBuffer) arg;
+      if (buf.hasArray()) {
+        json.writeBinary(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+      } else {
+        json.writeBinary(new ByteBufferInputStream(buf.duplicate()), buf.remaining());
+      }
+    } else if (arg instanceof InputStream) {
+      json.writeBinary(buffered((InputStream) arg));
+    } else {
+      json.writeObject(arg);
+    }
+  }
+
+  private byte[] buffered(InputStream in) throws IOException {
+    synchronized (streams) {
+      byte[] bytes = streams.get(in);
+      if (bytes == null) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+          out.write(buf, 0, n);
+        }
+        bytes = out.toByteArray();
+        streams.put(in, bytes);
+      }
+      return bytes;
+    }
+  }
+
+  private static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buf;
+
+    ByteBufferInputStream(ByteBuffer buf) {
+      this.buf = buf;
+    }
+
+    @Override
+    public int read() {
+      return buf.hasRemaining() ? buf.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (!buf.hasRemaining()) {
+        return -1;
+      }
+      len = Math.min(len, buf.remaining());
+      buf.get(b, off, len);
+      return len;
+    }
+  }
+
 }
@@ -19,9 +19,16 @@ public class PingRequest extends GenericRequest{
 
         HttpHeaders headers = response.getHeaders();
         String version = headers.getFirstHeaderStringValue("X-Rqlite-Version");
+        response.ignore();
 
         return new Pong(version);
     }
+
+    public PingRequest setTimeout(int millis) {
+        this.httpRequest.setConnectTimeout(millis);
+        this.httpRequest.setReadTimeout(millis);
+        return this;
+    }
     
 
 }
@@ -1,18 +1,22 @@
 package com.rqlite.impl;
 
+import com.google.api.client.http.ByteArrayContent;
 import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.HttpRequest;
 import com.google.api.client.http.HttpResponse;
+import com.rqlite.BlobSink;
 import com.rqlite.Rqlite.ReadConsistencyLevel;
 import com.rqlite.dto.QueryResults;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 
 public class QueryRequest extends GenericRequest {
 
     private HttpRequest httpRequest;
+    private BlobSink blobSink;
 
     public QueryRequest(HttpRequest request) {
         this.httpRequest = request;
@@ -20,7 +24,10 @@ public class QueryRequest extends GenericRequest {
 
     public QueryResults execute() throws IOException {
         HttpResponse response = this.httpRequest.execute();
-        return response.parseAs(QueryResults.class);
+        this.respondedNanos = System.nanoTime();
+        try (InputStream in = response.getContent()) {
+            return ResultsDecoder.decodeQuery(in, this.blobSink);
+        }
     }
 
     public String getUrl() {
@@ -41,10 +48,27 @@ public class QueryRequest extends GenericRequest {
         return stream.toString();
     }
 
+    byte[] getContent() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        this.httpRequest.getContent().writeTo(stream);
+        return stream.toByteArray();
+    }
+
+    byte[] encode() throws IOException {
+        byte[] body = this.getContent();
+        this.httpRequest.setContent(new ByteArrayContent(this.httpRequest.getContent().getType(), body));
+        return body;
+    }
+
     public void writeContentTo(OutputStream out) {
         return;
     }
 
+    public QueryRequest setBlobSink(BlobSink blobSink) {
+        this.blobSink = blobSink;
+        return this;
+    }
+
     public QueryRequest setReadConsistencyLevel(ReadConsistencyLevel lvl) {
         this.httpRequest.getUrl().put("level", lvl.toString().toLowerCase());
         return this;
@@ -2,6 +2,7 @@ package com.rqlite.impl;
 
 import java.io.IOException;
 
+import com.google.api.client.http.ByteArrayContent;
 import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.HttpRequest;
 import com.google.api.client.http.HttpRequestFactory;
@@ -29,6 +30,10 @@ public class RequestFactory {
     private GenericUrl statusUrl;
 
     public RequestFactory(final String proto, final String host, final Integer port) {
+        this(proto, host, port, HTTP_TRANSPORT);
+    }
+
+    public RequestFactory(final String proto, final String host, final Integer port, final HttpTransport transport) {
         this.proto = proto;
         this.host = host;
         this.port = port;
@@ -37,7 +42,7 @@ public class RequestFactory {
         this.queryUrl = new GenericUrl(String.format("%s://%s:%d/db/query", this.proto, this.host, this.port));
         this.statusUrl = new GenericUrl(String.format("%s://%s:%d/status", this.proto, this.host, this.port));
 
-        this.requestFactory = HTTP_TRANSPORT.createRequestFactory(new HttpRequestInitializer() {
+        this.requestFactory = transport.createRequestFactory(new HttpRequestInitializer() {
             public void initialize(HttpRequest request) {
                 request.setParser(new JsonObjectParser(JSON_FACTORY));
             }
@@ -54,6 +59,11 @@ public class RequestFactory {
         return new ExecuteRequest(request);
     }
 
+    ExecuteRequest buildExecuteRequest(byte[] body) throws IOException {
+        HttpRequest request = this.requestFactory.buildPostRequest(this.executeUrl.clone(), new ByteArrayContent("application/json", body));
+        return new ExecuteRequest(request.setParser(new JsonObjectParser(JSON_FACTORY)));
+    }
+
     public QueryRequest buildQueryRequest(String[] stmts) throws IOException {
         HttpRequest request = this.buildPostRequest(this.queryUrl, stmts);
         return new QueryRequest(request);
@@ -64,24 +74,52 @@ public class RequestFactory {
         return new QueryRequest(request);
     }
 
+    public CursorRequest buildCursorRequest(String[] stmts) throws IOException {
+        HttpRequest request = this.buildPostRequest(this.queryUrl, stmts);
+        return new CursorRequest(request);
+    }
+
+    public CursorRequest buildCursorRequest(ParameterizedStatement[] stmts) throws IOException {
+        HttpRequest request = this.buildPostRequest(this.queryUrl, stmts);
+        return new CursorRequest(request);
+    }
+
     public PingRequest buildPingRequest() throws IOException {
-        HttpRequest request = this.requestFactory.buildGetRequest(this.statusUrl);
+        HttpRequest request = this.requestFactory.buildGetRequest(this.statusUrl.clone());
         return new PingRequest(request);
     }
 
     private HttpRequest buildPostRequest(GenericUrl url, String[] stmts) throws IOException {
-        HttpRequest request = this.requestFactory.buildPostRequest(url, new JsonHttpContent(JSON_FACTORY, stmts));
+        HttpRequest request = this.requestFactory.buildPostRequest(url.clone(), new JsonHttpContent(JSON_FACTORY, stmts));
         return request.setParser(new JsonObjectParser(JSON_FACTORY));
     }
     private HttpRequest buildPostRequest(GenericUrl url, ParameterizedStatement[] stmts) throws IOException {
-        HttpRequest request = this.requestFactory.buildPostRequest(url, new ParameterizedStatementContent(stmts));
+        HttpRequest request = this.requestFactory.buildPostRequest(url.clone(), new ParameterizedStatementContent(stmts));
         return request.setParser(new JsonObjectParser(JSON_FACTORY));
     }
 
+    RequestFactory withTransport(HttpTransport transport) {
+        return new RequestFactory(this.proto, this.host, this.port, transport);
+    }
+
+    String node() {
+        return this.proto + "://" + this.host + ":" + this.port;
+    }
+
+    /** The node of url, in the form returned by node(). */
+    static String nodeOf(String url) {
+        GenericUrl u = new GenericUrl(url);
+        return u.getScheme() + "://" + u.getHost() + ":" + u.getPort();
+    }
+
     GenericRequest AdoptRequest(GenericRequest request){
-        if (request instanceof ExecuteRequest) {request.setUrl(this.executeUrl);}
-        else if (request instanceof QueryRequest) {request.setUrl(this.queryUrl);}
-        else {request.setUrl(this.statusUrl);}
+        GenericUrl url;
+        if (request instanceof ExecuteRequest) {url = this.executeUrl.clone();}
+        else if (request instanceof QueryRequest || request instanceof CursorRequest) {url = this.queryUrl.clone();}
+        else {url = this.statusUrl.clone();}
+        // keep the level, transaction and timings parameters
+        url.putAll(new GenericUrl(request.getUrl()));
+        request.setUrl(url);
         return request;
     }
 
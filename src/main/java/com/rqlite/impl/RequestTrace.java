@@ -0,0 +1,192 @@
+package com.rqlite.impl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * RequestTrace records where the time of one call went: encoding the
+ * statements, each node the request was sent to, probing peers during
+ * failover, and the time rqlite reported for running the statements. All
+ * durations are in nanoseconds.
+ */
+public final class RequestTrace {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    // toString logs at most this many characters of SQL
+    private static final int MAX_LOGGED_SQL = 500;
+
+    /**
+     * One attempt to run the request on a node. Network time lasts until the
+     * response headers arrive; decode time covers reading and decoding the
+     * body, which for a Cursor happens later and is not included.
+     */
+    public static final class Attempt {
+        public final String node;
+        public final long networkNanos;
+        public final long decodeNanos;
+        public final Throwable error;
+
+        Attempt(String node, long networkNanos, long decodeNanos, Throwable error) {
+            this.node = node;
+            this.networkNanos = networkNanos;
+            this.decodeNanos = decodeNanos;
+            this.error = error;
+        }
+    }
+
+    private final String operation;
+    private final long start = System.nanoTime();
+    private final List<Attempt> attempts = new ArrayList<>(1);
+    private byte[] body;
+    private long encodeNanos;
+    private long probeNanos;
+    private long serverNanos = -1;
+    private long totalNanos;
+    private Throwable error;
+
+    RequestTrace(String operation) {
+        this.operation = operation;
+    }
+
+    void encoded(byte[] body, long nanos) {
+        this.body = body;
+        this.encodeNanos = nanos;
+    }
+
+    void attempt(String node, long started, long responded, Throwable error) {
+        long end = System.nanoTime();
+        if (responded == Long.MIN_VALUE) {
+            // no response arrived
+            responded = end;
+        }
+        this.attempts.add(new Attempt(node, responded - started, end - responded, error));
+    }
+
+    void probed(long nanos) {
+        this.probeNanos += nanos;
+    }
+
+    void finish(float serverSeconds, Throwable error) {
+        this.totalNanos = System.nanoTime() - this.start;
+        if (serverSeconds > 0) {
+            this.serverNanos = (long) (serverSeconds * 1e9);
+        }
+        this.error = error;
+    }
+
+    /** "query", "execute" or "cursor". */
+    public String getOperation() {
+        return operation;
+    }
+
+    public List<Attempt> getAttempts() {
+        return Collections.unmodifiableList(attempts);
+    }
+
+    public long getEncodeNanos() {
+        return encodeNanos;
+    }
+
+    /** Time spent pinging peers to find one to fail over to. */
+    public long getProbeNanos() {
+        return probeNanos;
+    }
+
+    /** Time rqlite reported for the statements, or -1 if not known. */
+    public long getServerNanos() {
+        return serverNanos;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * The JSON request body, which holds the SQL and its parameter values.
+     * Take care where it is logged, as the values may be sensitive.
+     */
+    public String getStatements() {
+        return body == null ? null : new String(body, StandardCharsets.UTF_8);
+    }
+
+    /** The SQL of each statement without its parameter values, or null if not known. */
+    public List<String> getSql() {
+        if (body == null) {
+            return null;
+        }
+        List<String> sql = new ArrayList<>();
+        try (JsonParser p = JSON_FACTORY.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_ARRAY) {
+                return null;
+            }
+            JsonToken t;
+            while ((t = p.nextToken()) != JsonToken.END_ARRAY && t != null) {
+                if (t == JsonToken.VALUE_STRING) {
+                    sql.add(p.getText());
+                } else if (t == JsonToken.START_ARRAY) {
+                    if (p.nextToken() == JsonToken.VALUE_STRING) {
+                        sql.add(p.getText());
+                    }
+                    // skip the parameters
+                    while ((t = p.nextToken()) != JsonToken.END_ARRAY && t != null) {
+                        p.skipChildren();
+                    }
+                } else {
+                    p.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return sql;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(operation).append(' ').append(millis(totalNanos)).append("ms")
+                .append(" encode=").append(millis(encodeNanos)).append("ms");
+        if (probeNanos > 0) {
+            sb.append(" probe=").append(millis(probeNanos)).append("ms");
+        }
+        if (serverNanos >= 0) {
+            sb.append(" server=").append(millis(serverNanos)).append("ms");
+        }
+        for (Attempt a : attempts) {
+            sb.append(" [").append(a.node)
+                    .append(" network=").append(millis(a.networkNanos)).append("ms")
+                    .append(" decode=").append(millis(a.decodeNanos)).append("ms");
+            if (a.error != null) {
+                sb.append(" error=").append(a.error);
+            }
+            sb.append(']');
+        }
+        if (error != null) {
+            sb.append(" failed: ").append(error);
+        }
+        // only the SQL, as parameter values may hold user data
+        List<String> sql = getSql();
+        String text = sql == null ? "unknown" : String.join("; ", sql);
+        if (text.length() > MAX_LOGGED_SQL) {
+            text = text.substring(0, MAX_LOGGED_SQL) + "...";
+        }
+        sb.append(" sql=").append(text);
+        return sb.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
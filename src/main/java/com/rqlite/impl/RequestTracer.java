@@ -0,0 +1,10 @@
+package com.rqlite.impl;
+
+/**
+ * RequestTracer receives a RequestTrace for every Query, Execute and Cursor
+ * call once it completes or fails. It is called on the calling thread, so
+ * implementations should return quickly.
+ */
+public interface RequestTracer {
+    void onRequest(RequestTrace trace);
+}
@@ -0,0 +1,251 @@
+package com.rqlite.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.rqlite.BlobSink;
+import com.rqlite.dto.ExecuteResults;
+import com.rqlite.dto.QueryResults;
+
+/**
+ * ResultsDecoder reads /db/execute and /db/query responses with a streaming
+ * Jackson parser, writing straight into the result objects. Unknown fields are
+ * skipped. Numbers in query values decode to BigDecimal, as with parseAs.
+ */
+final class ResultsDecoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private ResultsDecoder() {
+    }
+
+    static ExecuteResults decodeExecute(InputStream in) throws IOException {
+        ExecuteResults results = new ExecuteResults();
+        if (in == null) {
+            return results;
+        }
+        try (JsonParser p = JSON_FACTORY.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected JSON object in execute response");
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                JsonToken t = p.nextToken();
+                if ("results".equals(field) && t == JsonToken.START_ARRAY) {
+                    List<ExecuteResults.Result> list = new ArrayList<>();
+                    while (p.nextToken() == JsonToken.START_OBJECT) {
+                        list.add(decodeExecuteResult(p));
+                    }
+                    results.results = list.toArray(new ExecuteResults.Result[list.size()]);
+                } else if ("time".equals(field) && t.isNumeric()) {
+                    results.time = p.getFloatValue();
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+        return results;
+    }
+
+    static QueryResults decodeQuery(InputStream in) throws IOException {
+        return decodeQuery(in, null);
+    }
+
+    /**
+     * Decodes a query response. If blobSink is not null, cells in "blob" columns
+     * are base64-decoded into the sink while streaming, without first being
+     * materialized as a String.
+     */
+    static QueryResults decodeQuery(InputStream in, BlobSink blobSink) throws IOException {
+        QueryResults results = new QueryResults();
+        if (in == null) {
+            return results;
+        }
+        try (JsonParser p = JSON_FACTORY.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected JSON object in query response");
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                JsonToken t = p.nextToken();
+                if ("results".equals(field) && t == JsonToken.START_ARRAY) {
+                    List<QueryResults.Result> list = new ArrayList<>();
+                    while (p.nextToken() == JsonToken.START_OBJECT) {
+                        list.add(decodeQueryResult(p, list.size(), blobSink));
+                    }
+                    results.results = list.toArray(new QueryResults.Result[list.size()]);
+                } else if ("time".equals(field) && t.isNumeric()) {
+                    results.time = p.getFloatValue();
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+        return results;
+    }
+
+    private static ExecuteResults.Result decodeExecuteResult(JsonParser p) throws IOException {
+        ExecuteResults.Result r = new ExecuteResults.Result();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken t = p.nextToken();
+            if (t == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "error":
+                    r.error = p.getText();
+                    break;
+                case "last_insert_id":
+                    r.lastInsertId = p.getIntValue();
+                    break;
+                case "rows_affected":
+                    r.rowsAffected = p.getIntValue();
+                    break;
+                case "time":
+                    r.time = p.getFloatValue();
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return r;
+    }
+
+    private static QueryResults.Result decodeQueryResult(JsonParser p, int index, BlobSink blobSink)
+            throws IOException {
+        QueryResults.Result r = new QueryResults.Result();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken t = p.nextToken();
+            if (t == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "error":
+                    r.error = p.getText();
+                    break;
+                case "columns":
+                    r.columns = readStrings(p);
+                    break;
+                case "types":
+                    r.types = readStrings(p);
+                    break;
+                case "values":
+                    r.values = readRows(p, index, r.columns, blobColumns(r.types, blobSink));
+                    break;
+                case "time":
+                    r.time = p.getFloatValue();
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return r;
+    }
+
+    static String[] readStrings(JsonParser p) throws IOException {
+        List<String> list = new ArrayList<>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            list.add(p.getValueAsString());
+        }
+        return list.toArray(new String[list.size()]);
+    }
+
+    /**
+     * Returns a sink per column for columns of type "blob", or null if no
+     * column needs one.
+     */
+    static BlobSink[] blobColumns(String[] types, BlobSink blobSink) {
+        if (blobSink == null || types == null) {
+            return null;
+        }
+        BlobSink[] sinks = null;
+        for (int i = 0; i < types.length; i++) {
+            if ("blob".equalsIgnoreCase(types[i])) {
+                if (sinks == null) {
+                    sinks = new BlobSink[types.length];
+                }
+                sinks[i] = blobSink;
+            }
+        }
+        return sinks;
+    }
+
+    private static Object[][] readRows(JsonParser p, int index, String[] columns, BlobSink[] blobs)
+            throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        int width = columns == null ? 0 : columns.length;
+        while (p.nextToken() == JsonToken.START_ARRAY) {
+            rows.add(readRow(p, width, index, rows.size(), blobs));
+        }
+        return rows.toArray(new Object[rows.size()][]);
+    }
+
+    /**
+     * Reads the remaining cells of a row whose START_ARRAY has been consumed.
+     * The row is sized from the column count so it is allocated only once.
+     */
+    static Object[] readRow(JsonParser p, int width, int index, int rowIndex, BlobSink[] blobs)
+            throws IOException {
+        Object[] row = new Object[width];
+        int i = 0;
+        JsonToken t;
+        while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+            if (i == row.length) {
+                row = Arrays.copyOf(row, Math.max(4, row.length * 2));
+            }
+            if (blobs != null && i < blobs.length && blobs[i] != null && t == JsonToken.VALUE_STRING) {
+                OutputStream out = blobs[i].open(index, rowIndex, i);
+                p.readBinaryValue(Base64Variants.MIME_NO_LINEFEEDS, out);
+                row[i] = blobs[i].close(out);
+            } else {
+                row[i] = readValue(p, t);
+            }
+            i++;
+        }
+        return i == row.length ? row : Arrays.copyOf(row, i);
+    }
+
+    static Object readValue(JsonParser p, JsonToken t) throws IOException {
+        switch (t) {
+            case VALUE_STRING:
+                return p.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return p.getDecimalValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case START_ARRAY: {
+                List<Object> list = new ArrayList<>();
+                JsonToken n;
+                while ((n = p.nextToken()) != JsonToken.END_ARRAY) {
+                    list.add(readValue(p, n));
+                }
+                return list;
+            }
+            case START_OBJECT: {
+                Map<String, Object> map = new LinkedHashMap<>();
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = p.getCurrentName();
+                    map.put(name, readValue(p, p.nextToken()));
+                }
+                return map;
+            }
+            default:
+                return null;
+        }
+    }
+}
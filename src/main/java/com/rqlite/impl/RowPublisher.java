@@ -0,0 +1,182 @@
+package com.rqlite.impl;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.rqlite.NodeUnavailableException;
+import com.rqlite.Rqlite;
+import com.rqlite.Rqlite.ReadConsistencyLevel;
+import com.rqlite.dto.ParameterizedStatement;
+import com.rqlite.dto.QueryCursor;
+
+/**
+ * RowPublisher is a Reactive Streams Publisher of the rows of one query. Each
+ * subscription runs the query through Cursor and reads a row from the response
+ * only when the subscriber has requested one, so a slow subscriber leaves the
+ * rest of the response unread on the socket. Rows are delivered on a thread of
+ * the executor. A statement error is signalled as an IllegalStateException.
+ * On Java 9 and later, org.reactivestreams.FlowAdapters turns this into a
+ * java.util.concurrent.Flow.Publisher.
+ */
+public class RowPublisher implements Publisher<Object[]> {
+
+    static final ExecutorService ROW_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "rqlite-rows");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Rqlite rqlite;
+    private final ParameterizedStatement stmt;
+    private final ReadConsistencyLevel lvl;
+    private final Executor executor;
+
+    public RowPublisher(Rqlite rqlite, String q, ReadConsistencyLevel lvl) {
+        this(rqlite, new ParameterizedStatement(q, null), lvl);
+    }
+
+    public RowPublisher(Rqlite rqlite, ParameterizedStatement q, ReadConsistencyLevel lvl) {
+        this(rqlite, q, lvl, ROW_EXECUTOR);
+    }
+
+    public RowPublisher(Rqlite rqlite, ParameterizedStatement q, ReadConsistencyLevel lvl, Executor executor) {
+        this.rqlite = rqlite;
+        this.stmt = q;
+        this.lvl = lvl;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Object[]> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        RowSubscription subscription = new RowSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * Signals are serialized by a work-in-progress counter: whichever call
+     * moves it from zero schedules a drain, and the drain loops until every
+     * request and cancel made meanwhile has been seen.
+     */
+    private final class RowSubscription implements Subscription, Runnable {
+        private final Subscriber<? super Object[]> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile long invalidRequest;
+        private volatile boolean invalid;
+        // only touched by whoever moved wip from zero
+        private QueryCursor cursor;
+        private boolean done;
+
+        RowSubscription(Subscriber<? super Object[]> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = n;
+                invalid = true;
+            } else {
+                demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // wip stays above zero, so no drain can run after this one
+                    if (!done) {
+                        finish();
+                        if (!cancelled) {
+                            subscriber.onError(e);
+                        }
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (done) {
+                return;
+            }
+            if (cancelled) {
+                finish();
+                return;
+            }
+            if (invalid) {
+                finish();
+                subscriber.onError(new IllegalArgumentException("request must be positive, was " + invalidRequest));
+                return;
+            }
+            try {
+                while (demand.get() > 0) {
+                    if (cursor == null) {
+                        cursor = rqlite.Cursor(new ParameterizedStatement[] { stmt }, false, lvl);
+                    }
+                    if (!cursor.next()) {
+                        String error = cursor.error();
+                        finish();
+                        if (error != null) {
+                            subscriber.onError(new IllegalStateException(error));
+                        } else {
+                            subscriber.onComplete();
+                        }
+                        return;
+                    }
+                    demand.decrementAndGet();
+                    subscriber.onNext(cursor.row());
+                    if (cancelled) {
+                        finish();
+                        return;
+                    }
+                }
+            } catch (IOException | NodeUnavailableException | RuntimeException e) {
+                finish();
+                subscriber.onError(e);
+            }
+        }
+
+        private void finish() {
+            done = true;
+            if (cursor != null) {
+                try {
+                    cursor.close();
+                } catch (IOException e) {
+                    // nothing more will be read
+                }
+                cursor = null;
+            }
+        }
+    }
+}
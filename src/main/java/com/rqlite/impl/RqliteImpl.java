@@ -4,49 +4,279 @@ import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
 
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.http.HttpTransport;
 import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.jackson2.JacksonFactory;
+import com.rqlite.BlobSink;
 import com.rqlite.NodeUnavailableException;
 import com.rqlite.Rqlite;
 import com.rqlite.dto.ExecuteResults;
 import com.rqlite.dto.GenericResults;
 import com.rqlite.dto.ParameterizedStatement;
 import com.rqlite.dto.Pong;
+import com.rqlite.dto.QueryCursor;
 import com.rqlite.dto.QueryResults;
 
 public class RqliteImpl implements Rqlite {
 
     static final HttpTransport HTTP_TRANSPORT = new NetHttpTransport();
     static final JsonFactory JSON_FACTORY = new JacksonFactory();
+    static final Logger LOGGER = Logger.getLogger(RqliteImpl.class.getName());
+    static final int MAX_REPLAY_BATCH_BYTES = 1 << 20;
+    static final long SPOOL_REPLAY_INTERVAL_MS = 1000;
+    // below the JDK's default of 5 idle keep-alive connections per destination
+    public static final int PREWARM_CONNECTIONS = 4;
+    static final long FAILED_PEER_BACKOFF_MS = 10000;
+    static final ExecutorService PROBE_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "rqlite-probe");
+        t.setDaemon(true);
+        return t;
+    });
 
-    private RequestFactory requestFactory;
+    private volatile RequestFactory requestFactory;
 
     private List<RqliteNode> peers; // only initialized if evaluating a config file
     private int timeoutDelay = 8000;
+    private BlobSink blobSink;
+    private long spillThreshold;
+    private Path spillDirectory;
+    private volatile WriteSpool writeSpool;
+    private volatile AdmissionController admissionController;
+    private volatile AdmissionController.Priority queryPriority = AdmissionController.Priority.INTERACTIVE;
+    private volatile AdmissionController.Priority executePriority = AdmissionController.Priority.BULK;
+    private volatile SingleFlight<String, QueryResults> queryFlights;
+    private volatile RequestTracer tracer;
+    private volatile long slowQueryNanos = -1;
+    private volatile int parallelQueryParts;
+    private volatile boolean rewriteInserts;
+    private volatile HttpTransport transport = RequestFactory.HTTP_TRANSPORT;
+    private final AtomicInteger nextPart = new AtomicInteger();
+    private final Map<String, Long> failedPeers = new ConcurrentHashMap<>();
+    private volatile double slowQuerySampleRate;
+    private ScheduledExecutorService spoolReplayer;
 
-    Map<RqliteNode, RequestFactory> nodeRequestFactoryMap = new HashMap<>();
+    Map<RqliteNode, RequestFactory> nodeRequestFactoryMap = new ConcurrentHashMap<>();
 
     public RqliteImpl(final String proto, final String host, final Integer port) {
-        this.requestFactory = new RequestFactory(proto, host, port);
+        this.requestFactory = new RequestFactory(proto, host, port, this.transport);
     }
 
     public RqliteImpl(final String configPath) {
         loadPeersFromConfig(configPath);
-        this.requestFactory = new RequestFactory(peers.get(0).proto, peers.get(0).host, peers.get(0).port);
+        this.requestFactory = this.requestFactoryFor(peers.get(0));
+    }
+
+    /**
+     * Send requests with transport, for example an OkHttpTransport for HTTP/2,
+     * instead of the default HttpURLConnection-based transport.
+     */
+    public void setHttpTransport(HttpTransport transport) {
+        this.transport = transport;
+        this.nodeRequestFactoryMap.clear();
+        this.requestFactory = this.requestFactory.withTransport(transport);
     }
 
     public void setTimeoutDelay(int delay) {
         this.timeoutDelay = delay;
     }
 
+    /**
+     * Decode BLOB cells of query results into the given sink while the response
+     * is streamed, instead of returning them as base64 Strings. Pass null to
+     * restore the default.
+     */
+    public void setBlobSink(BlobSink blobSink) {
+        this.blobSink = blobSink;
+    }
+
+    /**
+     * Responses to Cursor calls larger than threshold bytes are written to a
+     * memory-mapped temporary file in dir (the default temporary directory if
+     * null) as they arrive, and rows are then read from the file rather than
+     * the heap. A threshold of zero or less, the default, disables spilling.
+     */
+    public void setSpillThreshold(long threshold, Path dir) {
+        this.spillThreshold = threshold;
+        this.spillDirectory = dir;
+    }
+
+    /**
+     * Enable the write spool. When no node accepts an Execute, its statements are
+     * appended to a memory-mapped journal at file instead of failing, and the
+     * returned results are marked spooled. While writes are waiting, later
+     * writes are spooled behind them to keep their order. A background thread
+     * replays the journal as batched /db/execute calls once a node is reachable.
+     * Replay is at-least-once: a batch accepted just before the process stops
+     * may be sent again. Execute still throws NodeUnavailableException when the
+     * journal is full.
+     */
+    public synchronized void enableWriteSpool(Path file, int capacityBytes) throws IOException {
+        if (this.writeSpool != null) {
+            throw new IllegalStateException("write spool already enabled");
+        }
+        this.writeSpool = new WriteSpool(file, capacityBytes);
+        this.spoolReplayer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rqlite-spool-replay");
+            t.setDaemon(true);
+            return t;
+        });
+        this.spoolReplayer.scheduleWithFixedDelay(this::replaySpool, 0, SPOOL_REPLAY_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Disable the write spool, stopping the replay thread and closing the
+     * journal. Writes still waiting in it are kept, and are replayed once the
+     * spool is enabled again on the same file.
+     */
+    public synchronized void disableWriteSpool() throws IOException {
+        WriteSpool spool = this.writeSpool;
+        if (spool == null) {
+            return;
+        }
+        this.writeSpool = null;
+        this.spoolReplayer.shutdown();
+        try {
+            this.spoolReplayer.awaitTermination(this.timeoutDelay, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.spoolReplayer = null;
+        spool.close();
+    }
+
+    /**
+     * Limit the requests in flight to each node with controller. Queries are
+     * admitted at INTERACTIVE priority ahead of Executes at BULK priority, and
+     * requests the controller sheds fail fast with RequestRejectedException.
+     * Pass null, the default, to disable admission control.
+     */
+    public void setAdmissionController(AdmissionController controller) {
+        this.admissionController = controller;
+    }
+
+    /**
+     * Set the priorities this client's Queries and Executes are admitted at,
+     * e.g. NORMAL for both on a client that serves background reports.
+     */
+    public void setAdmissionPriorities(AdmissionController.Priority query, AdmissionController.Priority execute) {
+        this.queryPriority = Objects.requireNonNull(query);
+        this.executePriority = Objects.requireNonNull(execute);
+    }
+
+    /**
+     * When enabled, concurrent Query calls with the same statements, parameters,
+     * transaction flag and consistency level share one HTTP request, and every
+     * caller receives the same QueryResults instance, which must be treated as
+     * read-only. Results are not cached beyond the request in flight.
+     */
+    public void setDeduplicateQueries(boolean enabled) {
+        this.queryFlights = enabled ? new SingleFlight<>() : null;
+    }
+
+    /**
+     * Pass each Query, Execute and Cursor call's RequestTrace to tracer when the
+     * call completes. While a tracer or the slow query log is set, request
+     * bodies are encoded before sending so that encoding can be timed, and
+     * rqlite is asked for timings. Pass null, the default, to disable.
+     */
+    public void setRequestTracer(RequestTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * Log calls taking at least thresholdMillis at WARNING, with their timings
+     * and statements. Only sampleRate (0 to 1) of the slow calls are logged. A
+     * negative threshold, the default, disables the log.
+     */
+    public void setSlowQueryLog(long thresholdMillis, double sampleRate) {
+        this.slowQuerySampleRate = sampleRate;
+        this.slowQueryNanos = thresholdMillis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    /**
+     * Split non-transactional NONE-level Query calls of several statements into
+     * up to maxParts requests, sent in parallel to the peers in turn, and
+     * return the results in statement order. Only use this for statements that
+     * do not depend on each other. Zero or one, the default, disables it.
+     */
+    public void setParallelQueries(int maxParts) {
+        this.parallelQueryParts = maxParts;
+    }
+
+    /**
+     * When enabled, runs of consecutive single-row INSERT ... VALUES (?, ...)
+     * statements with identical SQL passed to Execute are sent as multi-row
+     * INSERTs, and the results are spread back over the original statements.
+     * Without a transaction this changes failure handling: if one row fails,
+     * the other rows combined with it are not inserted either, and all report
+     * the error. Only the last statement of each combined run reports a
+     * last_insert_id; the others report 0. Disabled by default.
+     */
+    public void setRewriteInserts(boolean enabled) {
+        this.rewriteInserts = enabled;
+    }
+
+    private boolean tracing() {
+        return this.tracer != null || this.slowQueryNanos >= 0;
+    }
+
+    /**
+     * Opens connectionsPerNode connections to every configured node in the
+     * background, including the TLS handshake for https nodes, and leaves them
+     * in the keep-alive pool. Connections the pool later drops are reopened
+     * with a resumed TLS session. Unreachable nodes are skipped; the returned
+     * future completes when every attempt has finished.
+     */
+    public CompletableFuture<Void> prewarm(int connectionsPerNode) {
+        List<RequestFactory> factories = new ArrayList<>();
+        if (peers != null) {
+            for (RqliteNode node : peers) {
+                factories.add(requestFactoryFor(node));
+            }
+        } else {
+            factories.add(this.requestFactory);
+        }
+        List<CompletableFuture<Void>> pings = new ArrayList<>();
+        for (RequestFactory factory : factories) {
+            for (int i = 0; i < connectionsPerNode; i++) {
+                pings.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        factory.buildPingRequest().setTimeout(timeoutDelay).execute();
+                    } catch (IOException e) {
+                        LOGGER.fine("prewarm failed for " + factory + ": " + e);
+                    }
+                }, PROBE_EXECUTOR));
+            }
+        }
+        return CompletableFuture.allOf(pings.toArray(new CompletableFuture[pings.size()]));
+    }
+
     private void loadPeersFromConfig(String configPath){
         this.peers = new ArrayList<>();
         try (BufferedReader br = new BufferedReader(new FileReader(configPath))) {
@@ -62,65 +292,128 @@ public class RqliteImpl implements Rqlite {
         }
     }
 
-    private GenericResults tryOtherPeers(GenericRequest request, String[] stmts) throws NodeUnavailableException {
-        // Cycle through the list of nodes in the config file.
+    private RequestFactory requestFactoryFor(RqliteNode node) {
+        return nodeRequestFactoryMap.computeIfAbsent(node, n -> new RequestFactory(n.proto, n.host, n.port, this.transport));
+    }
+
+    private GenericResults tryOtherPeers(GenericRequest request) throws NodeUnavailableException {
+        return this.tryOtherPeers(request, false);
+    }
+
+    /**
+     * ClientError carries a 4xx response out of failover. Another node would
+     * reject the request the same way, so it is not retried.
+     */
+    private static final class ClientError extends RuntimeException {
+        final HttpResponseException response;
+
+        ClientError(HttpResponseException response) {
+            super(response);
+            this.response = response;
+        }
+    }
+
+    private static boolean isClientError(IOException e) {
+        return e instanceof HttpResponseException && ((HttpResponseException) e).getStatusCode() >= 400
+                && ((HttpResponseException) e).getStatusCode() < 500;
+    }
+
+    /**
+     * Retries request on the other peers until one accepts it or timeoutDelay
+     * passes. If stopOnClientError is set, a 4xx response from a peer ends
+     * failover with a ClientError.
+     */
+    private GenericResults tryOtherPeers(GenericRequest request, boolean stopOnClientError) throws NodeUnavailableException {
+        // Race the nodes in the config file that have not yet failed this
+        // request and retry on the first to answer. A node can answer /status
+        // and still fail requests, e.g. while it has no leader, so nodes that
+        // failed are skipped until every peer has been tried.
         long end = System.currentTimeMillis() + timeoutDelay;
+        Set<String> failed = new HashSet<>();
+        failed.add(RequestFactory.nodeOf(request.getUrl()));
         if (peers != null) {
             while (System.currentTimeMillis() < end) {
-                for (RqliteNode node : this.peers) {
+                if (failed.size() >= peers.size()) {
+                    failed.clear();
+                }
+                long probeStart = System.nanoTime();
+                RequestFactory factory = probePeers(end, failed);
+                if (request.trace != null) {
+                    request.trace.probed(System.nanoTime() - probeStart);
+                }
+                if (factory != null) {
                     try {
-                        if (nodeRequestFactoryMap.containsKey(node)) {
-                            requestFactory = nodeRequestFactoryMap.get(node);
-                        } else {
-                            requestFactory = new RequestFactory(node.proto, node.host, node.port);
-                            nodeRequestFactoryMap.put(node, requestFactory);
-                        }
-                        GenericRequest r = requestFactory.AdoptRequest(request);
-                        GenericResults results = r.execute();
+                        GenericRequest r = factory.AdoptRequest(request);
+                        GenericResults results = attempt(r, factory);
+                        requestFactory = factory;
                         return results;
                     } catch (IOException e) {
+                        if (stopOnClientError && isClientError(e)) {
+                            throw new ClientError((HttpResponseException) e);
+                        }
+                        failed.add(factory.node());
                     }
                 }
                 // pause to avoid churning
                 try {
                     Thread.sleep(100);
                 } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
                 }
             }
         }
         throw new NodeUnavailableException("Could not connect to rqlite node.  Please check that the node is online and that your config files point to the correct address.");
     }
 
-    private GenericResults tryOtherPeers(GenericRequest request, ParameterizedStatement[] stmts) throws NodeUnavailableException {
-        // Cycle through the list of nodes in the config file.
-        long end = System.currentTimeMillis() + timeoutDelay;
-        if (peers != null) {
-            while (System.currentTimeMillis() < end) {
-                for (RqliteNode node : this.peers) {
-                    try {
-                        if (nodeRequestFactoryMap.containsKey(node)) {
-                            requestFactory = nodeRequestFactoryMap.get(node);
-                        } else {
-                            requestFactory = new RequestFactory(node.proto, node.host, node.port);
-                            nodeRequestFactoryMap.put(node, requestFactory);
-                        }
-                        GenericRequest r = requestFactory.AdoptRequest(request);
-                        GenericResults results = r.execute();
-                        return results;
-                    } catch (IOException e) {
-                    }
+    /**
+     * Pings every peer not in excluded in parallel and returns the request
+     * factory of the first to respond, or null if none does before the
+     * deadline. Failover therefore costs about one round trip rather than one
+     * timeout per dead peer.
+     */
+    private RequestFactory probePeers(long deadline, Set<String> excluded) {
+        CompletionService<RequestFactory> probes = new ExecutorCompletionService<>(PROBE_EXECUTOR);
+        List<Future<RequestFactory>> futures = new ArrayList<>(peers.size());
+        for (RqliteNode node : peers) {
+            final RequestFactory factory = requestFactoryFor(node);
+            if (excluded.contains(factory.node())) {
+                continue;
+            }
+            futures.add(probes.submit(() -> {
+                int remaining = (int) Math.max(1, deadline - System.currentTimeMillis());
+                factory.buildPingRequest().setTimeout(remaining).execute();
+                return factory;
+            }));
+        }
+        try {
+            for (int pending = futures.size(); pending > 0; pending--) {
+                long remaining = deadline - System.currentTimeMillis();
+                Future<RequestFactory> done = probes.poll(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+                if (done == null) {
+                    return null;
                 }
-                // pause to avoid churning
                 try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    // that peer is unavailable, wait for the others
                 }
             }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            for (Future<RequestFactory> f : futures) {
+                f.cancel(true);
+            }
         }
-        throw new NodeUnavailableException("Could not connect to rqlite node.  Please check that the node is online and that your config files point to the correct address.");
     }
 
     public QueryResults Query(String[] stmts, boolean tx, ReadConsistencyLevel lvl) throws NodeUnavailableException {
+        if (this.fanOut(stmts.length, tx, lvl)) {
+            return this.queryInParallel(stmts, RequestFactory::buildQueryRequest);
+        }
         QueryRequest request;
 
         try {
@@ -130,19 +423,15 @@ public class RqliteImpl implements Rqlite {
             e1.printStackTrace();
             return null;
         }
-        request.enableTransaction(tx).setReadConsistencyLevel(lvl);
-
-        try {
-            return request.execute();
-        } catch (HttpResponseException responseException) {
-            return (QueryResults) this.tryOtherPeers(request, stmts);
-        } catch (IOException e) {
-            // TODO Auto-generated catch block
-            return (QueryResults) this.tryOtherPeers(request, stmts);
-        }
+        request.enableTransaction(tx).setReadConsistencyLevel(lvl).setBlobSink(this.blobSink)
+                .enableTimings(this.tracing());
+        return this.query(request);
     }
     @Override
     public QueryResults Query(ParameterizedStatement[] stmts, boolean tx, ReadConsistencyLevel lvl) throws NodeUnavailableException {
+        if (this.fanOut(stmts.length, tx, lvl)) {
+            return this.queryInParallel(stmts, RequestFactory::buildQueryRequest);
+        }
         QueryRequest request;
 
         try {
@@ -152,16 +441,168 @@ public class RqliteImpl implements Rqlite {
             e1.printStackTrace();
             return null;
         }
-        request.enableTransaction(tx).setReadConsistencyLevel(lvl);
+        request.enableTransaction(tx).setReadConsistencyLevel(lvl).setBlobSink(this.blobSink)
+                .enableTimings(this.tracing());
+        return this.query(request);
+    }
 
+    @Override
+    public QueryCursor Cursor(String[] stmts, boolean tx, ReadConsistencyLevel lvl) throws NodeUnavailableException {
+        CursorRequest request;
         try {
-            return request.execute();
-        } catch (HttpResponseException responseException) {
-            return (QueryResults) this.tryOtherPeers(request, stmts);
+            request = this.requestFactory.buildCursorRequest(stmts);
         } catch (IOException e) {
-            // TODO Auto-generated catch block
-            return (QueryResults) this.tryOtherPeers(request, stmts);
+            throw new UncheckedIOException("Could not build query request", e);
+        }
+        request.enableTransaction(tx).setReadConsistencyLevel(lvl).setBlobSink(this.blobSink)
+                .setSpillThreshold(this.spillThreshold, this.spillDirectory).enableTimings(this.tracing());
+        return this.cursor(request);
+    }
+
+    @Override
+    public QueryCursor Cursor(ParameterizedStatement[] stmts, boolean tx, ReadConsistencyLevel lvl) throws NodeUnavailableException {
+        CursorRequest request;
+        try {
+            request = this.requestFactory.buildCursorRequest(stmts);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not build query request", e);
+        }
+        request.enableTransaction(tx).setReadConsistencyLevel(lvl).setBlobSink(this.blobSink)
+                .setSpillThreshold(this.spillThreshold, this.spillDirectory).enableTimings(this.tracing());
+        return this.cursor(request);
+    }
+
+    private QueryCursor cursor(CursorRequest request) throws NodeUnavailableException {
+        return this.traced("cursor", request, () -> {
+            try {
+                return (QueryCursor) this.send(request, this.queryPriority);
+            } catch (IOException e) {
+                return (QueryCursor) this.tryOtherPeers(request);
+            }
+        });
+    }
+
+    private QueryResults query(QueryRequest request) throws NodeUnavailableException {
+        return this.query(request, this.requestFactory);
+    }
+
+    private QueryResults query(QueryRequest request, RequestFactory factory) throws NodeUnavailableException {
+        SingleFlight<String, QueryResults> flights = this.queryFlights;
+        if (flights != null) {
+            // encode() keeps the serialized body as the request content, so the
+            // statements are serialized once for both the key and the request.
+            String key;
+            try {
+                key = request.getUrl() + '\n' + new String(request.encode(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return flights.execute(key, () -> this.executeQuery(request, factory));
         }
+        return this.executeQuery(request, factory);
+    }
+
+    private QueryResults executeQuery(QueryRequest request, RequestFactory factory) throws NodeUnavailableException {
+        return this.traced("query", request, () -> {
+            try {
+                QueryResults results = (QueryResults) this.send(request, factory, this.queryPriority);
+                this.failedPeers.remove(factory.node());
+                return results;
+            } catch (IOException e) {
+                this.failedPeers.put(factory.node(), System.currentTimeMillis());
+                return (QueryResults) this.tryOtherPeers(request);
+            }
+        });
+    }
+
+    private boolean fanOut(int count, boolean tx, ReadConsistencyLevel lvl) {
+        return this.parallelQueryParts > 1 && count > 1 && !tx && lvl == ReadConsistencyLevel.NONE;
+    }
+
+    private interface QueryBuilder<S> {
+        QueryRequest build(RequestFactory factory, S[] stmts) throws IOException;
+    }
+
+    /**
+     * Runs contiguous slices of stmts on the peers in parallel, the first on the
+     * calling thread, and joins their results in order. A slice whose node
+     * fails is retried through the usual failover, and that node is skipped
+     * by later fan-outs for FAILED_PEER_BACKOFF_MS.
+     */
+    private <S> QueryResults queryInParallel(S[] stmts, QueryBuilder<S> builder) throws NodeUnavailableException {
+        int parts = Math.min(this.parallelQueryParts, stmts.length);
+        List<RqliteNode> nodes = this.peers;
+        int first = this.nextPart.getAndAdd(parts);
+        List<Future<QueryResults>> futures = new ArrayList<>(parts - 1);
+        QueryResults[] results = new QueryResults[parts];
+        try {
+            for (int i = parts - 1; i >= 0; i--) {
+                S[] slice = Arrays.copyOfRange(stmts, i * stmts.length / parts, (i + 1) * stmts.length / parts);
+                RequestFactory factory = nodes == null ? this.requestFactory : this.partFactory(nodes, first + i);
+                if (i > 0) {
+                    futures.add(PROBE_EXECUTOR.submit(() -> this.queryPart(slice, builder, factory)));
+                } else {
+                    results[0] = this.queryPart(slice, builder, factory);
+                }
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results[parts - 1 - i] = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof NodeUnavailableException) {
+                        throw (NodeUnavailableException) e.getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NodeUnavailableException("Interrupted while waiting for query results");
+        } finally {
+            for (Future<QueryResults> f : futures) {
+                f.cancel(true);
+            }
+        }
+
+        QueryResults joined = new QueryResults();
+        List<QueryResults.Result> list = new ArrayList<>(stmts.length);
+        for (QueryResults part : results) {
+            if (part.results != null) {
+                list.addAll(Arrays.asList(part.results));
+            }
+            joined.time = Math.max(joined.time, part.time);
+        }
+        joined.results = list.toArray(new QueryResults.Result[list.size()]);
+        return joined;
+    }
+
+    /**
+     * The peer at index in round-robin order, or the next one after it that
+     * has not failed a slice recently. Falls back to the peer at index when
+     * every peer has.
+     */
+    private RequestFactory partFactory(List<RqliteNode> nodes, int index) {
+        long now = System.currentTimeMillis();
+        for (int k = 0; k < nodes.size(); k++) {
+            RequestFactory factory = this.requestFactoryFor(nodes.get(Math.floorMod(index + k, nodes.size())));
+            Long failedAt = this.failedPeers.get(factory.node());
+            if (failedAt == null || now - failedAt >= FAILED_PEER_BACKOFF_MS) {
+                return factory;
+            }
+        }
+        return this.requestFactoryFor(nodes.get(Math.floorMod(index, nodes.size())));
+    }
+
+    private <S> QueryResults queryPart(S[] slice, QueryBuilder<S> builder, RequestFactory factory) throws NodeUnavailableException {
+        QueryRequest request;
+        try {
+            request = builder.build(factory, slice);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        request.setReadConsistencyLevel(ReadConsistencyLevel.NONE).setBlobSink(this.blobSink)
+                .enableTimings(this.tracing());
+        return this.query(request, factory);
     }
 
     public QueryResults Query(String s, ReadConsistencyLevel lvl) throws NodeUnavailableException {
@@ -182,37 +623,222 @@ public class RqliteImpl implements Rqlite {
             e1.printStackTrace();
             return null;
         }
-        request.enableTransaction(tx);
-
-        try {
-            return request.execute();
-        } catch (HttpResponseException responseException) {
-            return (ExecuteResults) this.tryOtherPeers(request, stmts);
-        } catch (IOException e) {
-            // TODO Auto-generated catch block
-            return (ExecuteResults) this.tryOtherPeers(request, stmts);
-        }
+        request.enableTransaction(tx).enableTimings(this.tracing());
+        return this.execute(request, tx, stmts.length);
     }
 
     @Override
     public ExecuteResults Execute(ParameterizedStatement[] stmts, boolean tx) throws NodeUnavailableException {
+        InsertBatcher batcher = this.rewriteInserts ? InsertBatcher.rewrite(stmts, InsertBatcher.MAX_PARAMETERS) : null;
+        ParameterizedStatement[] sent = batcher == null ? stmts : batcher.statements;
         ExecuteRequest request;
         try {
-            request = this.requestFactory.buildExecuteRequest(stmts);
+            request = this.requestFactory.buildExecuteRequest(sent);
         } catch (IOException e1) {
             // TODO Auto-generated catch block
             e1.printStackTrace();
             return null;
         }
-        request.enableTransaction(tx);
+        request.enableTransaction(tx).enableTimings(this.tracing());
+        ExecuteResults results = this.execute(request, tx, sent.length);
+        return batcher == null ? results : batcher.expand(results);
+    }
+
+    private ExecuteResults execute(ExecuteRequest request, boolean tx, int count) throws NodeUnavailableException {
+        return this.traced("execute", request, () -> this.executeOrSpool(request, tx, count));
+    }
+
+    private ExecuteResults executeOrSpool(ExecuteRequest request, boolean tx, int count) throws NodeUnavailableException {
+        WriteSpool spool = this.writeSpool;
+        if (spool != null && spool.isPending()) {
+            // keep order behind writes that are still waiting to be replayed
+            if (spool.appendIfPending(content(request), tx)) {
+                return spooled(count);
+            }
+        }
 
+        // A 4xx is the caller's error: it is returned rather than failed over
+        // or spooled, where it would be reported as queued and then dropped.
         try {
+            return (ExecuteResults) this.send(request, this.executePriority);
+        } catch (IOException e) {
+            if (isClientError(e)) {
+                return rejected(count, (HttpResponseException) e);
+            }
+            try {
+                return (ExecuteResults) this.tryOtherPeers(request, true);
+            } catch (ClientError error) {
+                return rejected(count, error.response);
+            } catch (NodeUnavailableException unavailable) {
+                if (spool != null && spool.append(content(request), tx)) {
+                    return spooled(count);
+                }
+                throw unavailable;
+            }
+        }
+    }
+
+    /**
+     * Send executes request on the current node, first waiting for admission if
+     * an AdmissionController is set. A cursor keeps its admission until it is
+     * closed, as it holds the connection open. Requests retried by failover are
+     * not limited again.
+     */
+    private GenericResults send(GenericRequest request, AdmissionController.Priority priority) throws IOException, NodeUnavailableException {
+        return this.send(request, this.requestFactory, priority);
+    }
+
+    private GenericResults send(GenericRequest request, RequestFactory factory, AdmissionController.Priority priority) throws IOException, NodeUnavailableException {
+        AdmissionController admission = this.admissionController;
+        if (admission == null) {
+            return attempt(request, factory);
+        }
+        // keyed by address, as one node may have several request factories
+        AdmissionController.Permit permit = admission.acquire(factory.node(), priority);
+        boolean success = false;
+        try {
+            GenericResults results = attempt(request, factory);
+            success = true;
+            if (results instanceof StreamingQueryCursor) {
+                ((StreamingQueryCursor) results).onClose(AdmissionController.hold(permit));
+                permit = null;
+            }
+            return results;
+        } finally {
+            if (permit != null) {
+                permit.release(success);
+            }
+        }
+    }
+
+    /**
+     * Executes request on the node of factory, recording the attempt if the
+     * request is traced.
+     */
+    private static GenericResults attempt(GenericRequest request, RequestFactory factory) throws IOException {
+        RequestTrace trace = request.trace;
+        if (trace == null) {
             return request.execute();
-        } catch (HttpResponseException responseException) {
-            return (ExecuteResults) this.tryOtherPeers(request, stmts);
+        }
+        request.respondedNanos = Long.MIN_VALUE;
+        long start = System.nanoTime();
+        try {
+            GenericResults results = request.execute();
+            trace.attempt(factory.node(), start, request.respondedNanos, null);
+            return results;
+        } catch (IOException | RuntimeException e) {
+            trace.attempt(factory.node(), start, request.respondedNanos, e);
+            throw e;
+        }
+    }
+
+    private interface Call<T> {
+        T call() throws NodeUnavailableException;
+    }
+
+    /**
+     * Runs call, which sends request, and reports its trace to the tracer and
+     * the slow query log if either is set.
+     */
+    private <T extends GenericResults> T traced(String operation, GenericRequest request, Call<T> call) throws NodeUnavailableException {
+        if (!this.tracing()) {
+            return call.call();
+        }
+        RequestTrace trace = new RequestTrace(operation);
+        long start = System.nanoTime();
+        try {
+            trace.encoded(request.encode(), System.nanoTime() - start);
         } catch (IOException e) {
-            // TODO Auto-generated catch block
-            return (ExecuteResults) this.tryOtherPeers(request, stmts);
+            throw new IllegalStateException(e);
+        }
+        request.trace = trace;
+        T results = null;
+        Throwable error = null;
+        try {
+            results = call.call();
+            return results;
+        } catch (NodeUnavailableException | RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            float serverTime = 0;
+            if (results instanceof QueryResults) {
+                serverTime = ((QueryResults) results).time;
+            } else if (results instanceof ExecuteResults) {
+                serverTime = ((ExecuteResults) results).time;
+            }
+            trace.finish(serverTime, error);
+            this.report(trace);
+        }
+    }
+
+    private void report(RequestTrace trace) {
+        RequestTracer tracer = this.tracer;
+        if (tracer != null) {
+            tracer.onRequest(trace);
+        }
+        long threshold = this.slowQueryNanos;
+        if (threshold >= 0 && trace.getTotalNanos() >= threshold
+                && ThreadLocalRandom.current().nextDouble() < this.slowQuerySampleRate) {
+            LOGGER.warning("Slow rqlite " + trace);
+        }
+    }
+
+    private static byte[] content(ExecuteRequest request) {
+        try {
+            return request.getContent();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Results for count statements that all carry the error of a 4xx response. */
+    static ExecuteResults rejected(int count, HttpResponseException e) {
+        ExecuteResults results = new ExecuteResults();
+        results.results = new ExecuteResults.Result[count];
+        for (int i = 0; i < count; i++) {
+            results.results[i] = new ExecuteResults.Result();
+            results.results[i].error = e.getMessage();
+        }
+        return results;
+    }
+
+    static ExecuteResults spooled(int count) {
+        ExecuteResults results = new ExecuteResults();
+        results.results = new ExecuteResults.Result[count];
+        for (int i = 0; i < count; i++) {
+            results.results[i] = new ExecuteResults.Result();
+        }
+        results.spooled = true;
+        return results;
+    }
+
+    /**
+     * Replays spooled writes in order, batching consecutive non-transactional
+     * writes into one request, and checkpoints after each accepted batch. Stops
+     * at the first batch no node accepts; it is retried on the next run.
+     */
+    void replaySpool() {
+        WriteSpool spool = this.writeSpool;
+        WriteSpool.Batch batch;
+        while (spool != null && (batch = spool.nextBatch(MAX_REPLAY_BATCH_BYTES)) != null) {
+            try {
+                ExecuteRequest request = this.requestFactory.buildExecuteRequest(batch.body).enableTransaction(batch.tx);
+                try {
+                    request.execute();
+                } catch (HttpResponseException e) {
+                    if (isClientError(e)) {
+                        LOGGER.warning("Dropping " + batch.count + " spooled writes rejected by rqlite: " + e.getStatusMessage());
+                    } else {
+                        this.tryOtherPeers(request);
+                    }
+                } catch (IOException e) {
+                    this.tryOtherPeers(request);
+                }
+                spool.commit(batch);
+            } catch (NodeUnavailableException | IOException e) {
+                return;
+            }
         }
     }
 
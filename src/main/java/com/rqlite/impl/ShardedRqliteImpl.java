@@ -0,0 +1,178 @@
+package com.rqlite.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToIntFunction;
+
+import com.rqlite.NodeUnavailableException;
+import com.rqlite.Rqlite;
+import com.rqlite.Rqlite.ReadConsistencyLevel;
+import com.rqlite.ShardedRqlite;
+import com.rqlite.dto.ExecuteResults;
+import com.rqlite.dto.ParameterizedStatement;
+import com.rqlite.dto.QueryResults;
+
+public class ShardedRqliteImpl implements ShardedRqlite {
+
+    static final ExecutorService SCATTER_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "rqlite-scatter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final List<Rqlite> shards;
+    private final ToIntFunction<Object> router;
+
+    /**
+     * Routes a key to shard floorMod(key.hashCode(), shards.size()). Keys must
+     * have a hashCode that is stable across JVMs, such as String or Long.
+     */
+    public ShardedRqliteImpl(List<? extends Rqlite> shards) {
+        this(shards, null);
+    }
+
+    /**
+     * @param router
+     *            maps a shard key to a shard index, or null for the default
+     */
+    public ShardedRqliteImpl(List<? extends Rqlite> shards, ToIntFunction<Object> router) {
+        if (shards == null || shards.isEmpty()) {
+            throw new IllegalArgumentException("at least one shard is required");
+        }
+        this.shards = new ArrayList<>(shards);
+        int n = this.shards.size();
+        this.router = router != null ? router : key -> Math.floorMod(key.hashCode(), n);
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    public int shardFor(Object key) {
+        int index = router.applyAsInt(key);
+        if (index < 0 || index >= shards.size()) {
+            throw new IllegalStateException("Shard key " + key + " routed to missing shard " + index);
+        }
+        return index;
+    }
+
+    public Rqlite shard(int index) {
+        return shards.get(index);
+    }
+
+    public QueryResults Query(Object key, String[] stmts, boolean tx, ReadConsistencyLevel lvl) throws NodeUnavailableException {
+        return shard(shardFor(key)).Query(stmts, tx, lvl);
+    }
+
+    public QueryResults Query(Object key, ParameterizedStatement[] stmts, boolean tx, ReadConsistencyLevel lvl) throws NodeUnavailableException {
+        return shard(shardFor(key)).Query(stmts, tx, lvl);
+    }
+
+    public ExecuteResults Execute(Object key, String[] stmts, boolean tx) throws NodeUnavailableException {
+        return shard(shardFor(key)).Execute(stmts, tx);
+    }
+
+    public ExecuteResults Execute(Object key, ParameterizedStatement[] stmts, boolean tx) throws NodeUnavailableException {
+        return shard(shardFor(key)).Execute(stmts, tx);
+    }
+
+    public QueryResults QueryAll(String[] stmts, ReadConsistencyLevel lvl) throws NodeUnavailableException {
+        return scatter(shard -> shard.Query(stmts, false, lvl));
+    }
+
+    public QueryResults QueryAll(ParameterizedStatement[] stmts, ReadConsistencyLevel lvl) throws NodeUnavailableException {
+        return scatter(shard -> shard.Query(stmts, false, lvl));
+    }
+
+    private interface ShardQuery {
+        QueryResults run(Rqlite shard) throws NodeUnavailableException;
+    }
+
+    private QueryResults scatter(ShardQuery query) throws NodeUnavailableException {
+        List<Future<QueryResults>> futures = new ArrayList<>(shards.size());
+        // the calling thread takes the first shard itself
+        for (int i = 1; i < shards.size(); i++) {
+            Rqlite shard = shards.get(i);
+            futures.add(SCATTER_EXECUTOR.submit(() -> query.run(shard)));
+        }
+        List<QueryResults> parts = new ArrayList<>(shards.size());
+        try {
+            try {
+                parts.add(query.run(shards.get(0)));
+            } catch (NodeUnavailableException e) {
+                throw new NodeUnavailableException("Shard 0: " + e.getMessage());
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    parts.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof NodeUnavailableException) {
+                        throw new NodeUnavailableException("Shard " + (i + 1) + ": " + cause.getMessage());
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NodeUnavailableException("Interrupted while querying shards");
+        } finally {
+            for (Future<QueryResults> f : futures) {
+                f.cancel(true);
+            }
+        }
+        return merge(parts);
+    }
+
+    static QueryResults merge(List<QueryResults> parts) {
+        QueryResults merged = new QueryResults();
+        int count = 0;
+        for (QueryResults part : parts) {
+            if (part != null && part.results != null) {
+                count = Math.max(count, part.results.length);
+            }
+            if (part != null) {
+                merged.time = Math.max(merged.time, part.time);
+            }
+        }
+        merged.results = new QueryResults.Result[count];
+        for (int i = 0; i < count; i++) {
+            QueryResults.Result result = new QueryResults.Result();
+            List<Object[]> rows = new ArrayList<>();
+            for (int shard = 0; shard < parts.size() && result.error == null; shard++) {
+                QueryResults part = parts.get(shard);
+                QueryResults.Result r = part == null || part.results == null || i >= part.results.length
+                        ? null : part.results[i];
+                if (r == null) {
+                    continue;
+                }
+                if (r.error != null) {
+                    result.error = "Shard " + shard + ": " + r.error;
+                    break;
+                }
+                if (result.columns == null) {
+                    result.columns = r.columns;
+                    result.types = r.types;
+                }
+                if (r.values != null) {
+                    for (Object[] row : r.values) {
+                        rows.add(row);
+                    }
+                }
+                result.time = Math.max(result.time, r.time);
+            }
+            if (result.error == null && (result.columns != null || !rows.isEmpty())) {
+                result.values = rows.toArray(new Object[rows.size()][]);
+            }
+            merged.results[i] = result;
+        }
+        return merged;
+    }
+}
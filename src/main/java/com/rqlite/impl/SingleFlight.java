@@ -0,0 +1,61 @@
+package com.rqlite.impl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import com.rqlite.NodeUnavailableException;
+
+/**
+ * SingleFlight collapses concurrent calls with equal keys into one: the first
+ * caller runs the call, and callers arriving while it is in flight wait for and
+ * share its result. Nothing is cached once the call completes.
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inflight = new ConcurrentHashMap<>();
+
+    V execute(K key, Callable<V> call) throws NodeUnavailableException {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inflight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            V value = call.call();
+            mine.complete(value);
+            return value;
+        } catch (Exception e) {
+            mine.completeExceptionally(e);
+            throw rethrow(e);
+        } finally {
+            inflight.remove(key, mine);
+        }
+    }
+
+    private V await(CompletableFuture<V> future) throws NodeUnavailableException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NodeUnavailableException("Interrupted while waiting for an identical query in flight.");
+        }
+    }
+
+    private static NodeUnavailableException rethrow(Throwable t) {
+        if (t instanceof NodeUnavailableException) {
+            return (NodeUnavailableException) t;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new IllegalStateException(t);
+    }
+}
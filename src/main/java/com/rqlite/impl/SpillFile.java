@@ -0,0 +1,131 @@
+package com.rqlite.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * SpillFile buffers a response body so the connection can be released before
+ * the caller reads it. Bodies up to the threshold stay on the heap; larger ones
+ * are written to a temporary file as they arrive and read back through memory
+ * mappings, so the rows never sit on the Java heap. The file is deleted when the
+ * returned stream is closed.
+ */
+final class SpillFile extends InputStream {
+
+    private static final int CHUNK = 64 * 1024;
+    private static final long SEGMENT = 1L << 30;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long size;
+
+    private long position;
+    private MappedByteBuffer segment;
+
+    private SpillFile(Path path, FileChannel channel) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    /**
+     * Reads in fully and returns a stream over its contents, spilling to a file
+     * in dir (or the default temporary directory if dir is null) once more than
+     * threshold bytes have been read. Always closes in.
+     */
+    static InputStream buffer(InputStream in, long threshold, Path dir) throws IOException {
+        int limit = (int) Math.min(threshold, Integer.MAX_VALUE - CHUNK);
+        try (InputStream source = in) {
+            ByteArrayOutputStream head = new ByteArrayOutputStream(Math.min(limit, CHUNK));
+            byte[] chunk = new byte[CHUNK];
+            int n;
+            while ((n = source.read(chunk)) != -1) {
+                head.write(chunk, 0, n);
+                if (head.size() > limit) {
+                    return spill(head, chunk, source, dir);
+                }
+            }
+            return new ByteArrayInputStream(head.toByteArray());
+        }
+    }
+
+    private static SpillFile spill(ByteArrayOutputStream head, byte[] chunk, InputStream source, Path dir)
+            throws IOException {
+        Path path = dir == null ? Files.createTempFile("rqlite-", ".spill") : Files.createTempFile(dir, "rqlite-", ".spill");
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            writeFully(channel, ByteBuffer.wrap(head.toByteArray()));
+            head.reset();
+            int n;
+            while ((n = source.read(chunk)) != -1) {
+                writeFully(channel, ByteBuffer.wrap(chunk, 0, n));
+            }
+            return new SpillFile(path, channel);
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private boolean ensureSegment() throws IOException {
+        if (segment != null && segment.hasRemaining()) {
+            return true;
+        }
+        if (position >= size) {
+            return false;
+        }
+        long length = Math.min(SEGMENT, size - position);
+        segment = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        position += length;
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return ensureSegment() ? segment.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureSegment()) {
+            return -1;
+        }
+        len = Math.min(len, segment.remaining());
+        segment.get(b, off, len);
+        return len;
+    }
+
+    @Override
+    public void close() throws IOException {
+        segment = null;
+        position = size;
+        channel.close();
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // a mapping may still pin the file on some platforms
+            path.toFile().deleteOnExit();
+        }
+    }
+}
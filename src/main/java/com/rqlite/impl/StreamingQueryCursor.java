@@ -0,0 +1,176 @@
+package com.rqlite.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.rqlite.BlobSink;
+import com.rqlite.dto.QueryCursor;
+
+/**
+ * StreamingQueryCursor pulls rows from a /db/query response with a Jackson
+ * parser. Only the current row is decoded at any time.
+ */
+class StreamingQueryCursor implements QueryCursor {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+    private final BlobSink blobSink;
+
+    private boolean done;
+    private boolean inValues;
+    private int resultIndex = -1;
+    private int rowIndex;
+
+    private String[] columns;
+    private String[] types;
+    private String error;
+    private BlobSink[] blobs;
+    private Object[] row;
+    private Runnable onClose;
+
+    StreamingQueryCursor(InputStream in, BlobSink blobSink) throws IOException {
+        this.blobSink = blobSink;
+        this.done = true;
+        if (in == null) {
+            this.parser = null;
+            return;
+        }
+        this.parser = JSON_FACTORY.createParser(in);
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            parser.close();
+            throw new IOException("Expected JSON object in query response");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken t = parser.nextToken();
+            if ("results".equals(field) && t == JsonToken.START_ARRAY) {
+                this.done = false;
+                return;
+            }
+            parser.skipChildren();
+        }
+    }
+
+    @Override
+    public boolean nextResult() throws IOException {
+        if (done) {
+            return false;
+        }
+        while (inValues && next()) {
+            // skip unread rows of the current result
+        }
+        columns = null;
+        types = null;
+        error = null;
+        blobs = null;
+        row = null;
+        rowIndex = 0;
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            done = true;
+            return false;
+        }
+        resultIndex++;
+        readFields();
+        return true;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (resultIndex < 0 && !nextResult()) {
+            return false;
+        }
+        if (!inValues) {
+            return false;
+        }
+        if (parser.nextToken() == JsonToken.START_ARRAY) {
+            int width = columns == null ? 0 : columns.length;
+            row = ResultsDecoder.readRow(parser, width, resultIndex, rowIndex++, blobs);
+            return true;
+        }
+        inValues = false;
+        row = null;
+        readFields();
+        return false;
+    }
+
+    /**
+     * Reads the fields of the current result up to the start of its values, or
+     * to the end of the result object if it has none left.
+     */
+    private void readFields() throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken t = parser.nextToken();
+            if (t == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "error":
+                    error = parser.getText();
+                    break;
+                case "columns":
+                    columns = ResultsDecoder.readStrings(parser);
+                    break;
+                case "types":
+                    types = ResultsDecoder.readStrings(parser);
+                    break;
+                case "values":
+                    if (t == JsonToken.START_ARRAY) {
+                        blobs = ResultsDecoder.blobColumns(types, blobSink);
+                        inValues = true;
+                        return;
+                    }
+                    parser.skipChildren();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    @Override
+    public Object[] row() {
+        return row;
+    }
+
+    @Override
+    public String[] columns() {
+        return columns;
+    }
+
+    @Override
+    public String[] types() {
+        return types;
+    }
+
+    @Override
+    public String error() {
+        return error;
+    }
+
+    /** OnClose runs action once, when the cursor is first closed. */
+    void onClose(Runnable action) {
+        this.onClose = action;
+    }
+
+    @Override
+    public void close() throws IOException {
+        done = true;
+        inValues = false;
+        Runnable action = onClose;
+        onClose = null;
+        try {
+            if (parser != null) {
+                parser.close();
+            }
+        } finally {
+            if (action != null) {
+                action.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.rqlite.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * WriteSpool is a fixed-size journal of /db/execute request bodies, kept in a
+ * memory-mapped file so writes survive while no node is reachable, and across
+ * restarts. Records are replayed in order; the read offset in the header is the
+ * replay checkpoint and is advanced only after a batch has been accepted.
+ * Replay is therefore at-least-once: a batch accepted just before a crash, but
+ * not yet checkpointed, is sent again. Replayed space is reclaimed by moving
+ * the pending records to the front.
+ *
+ * Layout: a header of magic, read offset and write offset, followed by records
+ * of a length, a transaction flag and the JSON body.
+ */
+final class WriteSpool implements Closeable {
+
+    private static final int MAGIC = 0x52515350; // "RQSP"
+    private static final int HEADER = 24;
+    private static final int READ_OFFSET = 8;
+    private static final int WRITE_OFFSET = 16;
+    private static final int RECORD_HEADER = 5;
+
+    /** Batch is one or more consecutive records merged into a single request body. */
+    static final class Batch {
+        final byte[] body;
+        final boolean tx;
+        final int count;
+        private final int end;
+
+        Batch(byte[] body, boolean tx, int count, int end) {
+            this.body = body;
+            this.tx = tx;
+            this.count = count;
+            this.end = end;
+        }
+    }
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int readOffset;
+    private int writeOffset;
+    private boolean closed;
+
+    WriteSpool(Path path, int capacity) throws IOException {
+        this.file = new RandomAccessFile(path.toFile(), "rw");
+        try {
+            long existing = file.length();
+            this.capacity = existing >= HEADER ? (int) Math.min(existing, Integer.MAX_VALUE) : Math.max(capacity, HEADER + 1024);
+            if (existing < this.capacity) {
+                file.setLength(this.capacity);
+            }
+            this.buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, this.capacity);
+            if (existing >= HEADER && buffer.getInt(0) == MAGIC) {
+                readOffset = (int) buffer.getLong(READ_OFFSET);
+                writeOffset = (int) buffer.getLong(WRITE_OFFSET);
+                if (readOffset < HEADER || writeOffset < readOffset || writeOffset > this.capacity) {
+                    throw new IOException("Corrupt write spool header in " + path);
+                }
+            } else {
+                buffer.putInt(0, MAGIC);
+                readOffset = HEADER;
+                writeOffset = HEADER;
+                writeHeader();
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private void writeHeader() {
+        buffer.putLong(READ_OFFSET, readOffset);
+        buffer.putLong(WRITE_OFFSET, writeOffset);
+        buffer.force();
+    }
+
+    /** Append journals a request body. Returns false if the spool is full. */
+    synchronized boolean append(byte[] body, boolean tx) {
+        if (closed) {
+            return false;
+        }
+        if (writeOffset + RECORD_HEADER + body.length > capacity) {
+            // the header is written by compact, before the record below can
+            // overwrite bytes the old header pointed at
+            compact();
+            if (writeOffset + RECORD_HEADER + body.length > capacity) {
+                return false;
+            }
+        }
+        buffer.putInt(writeOffset, body.length);
+        buffer.put(writeOffset + 4, (byte) (tx ? 1 : 0));
+        ByteBuffer view = buffer.duplicate();
+        view.position(writeOffset + RECORD_HEADER);
+        view.put(body);
+        writeOffset += RECORD_HEADER + body.length;
+        writeHeader();
+        return true;
+    }
+
+    /** AppendIfPending journals the body only if earlier records are still waiting to be replayed. */
+    synchronized boolean appendIfPending(byte[] body, boolean tx) {
+        return isPending() && append(body, tx);
+    }
+
+    synchronized boolean isPending() {
+        return !closed && readOffset < writeOffset;
+    }
+
+    /**
+     * NextBatch returns the records from the checkpoint onward, merging
+     * consecutive non-transactional records into one JSON array of at most
+     * maxBytes. A transactional record is always replayed on its own.
+     */
+    synchronized Batch nextBatch(int maxBytes) {
+        if (!isPending()) {
+            return null;
+        }
+        int offset = readOffset;
+        boolean tx = buffer.get(offset + 4) == 1;
+        if (tx) {
+            int length = buffer.getInt(offset);
+            return new Batch(read(offset + RECORD_HEADER, length), true, 1, offset + RECORD_HEADER + length);
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write('[');
+        int count = 0;
+        while (offset < writeOffset && buffer.get(offset + 4) == 0) {
+            int length = buffer.getInt(offset);
+            if (count > 0 && body.size() + length > maxBytes) {
+                break;
+            }
+            // Each record is a JSON array; splice its elements into the batch array.
+            int start = offset + RECORD_HEADER;
+            int end = start + length;
+            while (start < end && buffer.get(start) != '[') {
+                start++;
+            }
+            while (end > start && buffer.get(end - 1) != ']') {
+                end--;
+            }
+            byte[] elements = read(start + 1, Math.max(0, end - start - 2));
+            if (elements.length > 0) {
+                if (body.size() > 1) {
+                    body.write(',');
+                }
+                body.write(elements, 0, elements.length);
+            }
+            offset += RECORD_HEADER + length;
+            count++;
+        }
+        body.write(']');
+        return new Batch(body.toByteArray(), false, count, offset);
+    }
+
+    private byte[] read(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        return bytes;
+    }
+
+    /** Commit checkpoints a replayed batch and reclaims the space it used. */
+    synchronized void commit(Batch batch) {
+        if (closed) {
+            return;
+        }
+        checkpoint(batch);
+        compact();
+    }
+
+    /** Checkpoint writes the read offset past batch to the header on disk. */
+    synchronized void checkpoint(Batch batch) {
+        readOffset = batch.end;
+        writeHeader();
+    }
+
+    /**
+     * Compact moves the pending records to the front of the journal and writes
+     * the header. The header on disk must already hold the current read offset.
+     */
+    private void compact() {
+        if (moveRecords()) {
+            writeHeader();
+        }
+    }
+
+    /**
+     * MoveRecords copies the pending records to the front of the journal and
+     * updates the offsets in memory only. It copies only once the replayed
+     * prefix is at least as large as the records, so the copy never overwrites
+     * the bytes the header on disk points at, and a crash before the header is
+     * written loses nothing.
+     */
+    synchronized boolean moveRecords() {
+        int pending = writeOffset - readOffset;
+        if (readOffset == HEADER || readOffset - HEADER < pending) {
+            return false;
+        }
+        if (pending > 0) {
+            byte[] records = read(readOffset, pending);
+            ByteBuffer view = buffer.duplicate();
+            view.position(HEADER);
+            view.put(records);
+            buffer.force();
+        }
+        readOffset = HEADER;
+        writeOffset = HEADER + pending;
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffer.force();
+        file.close();
+    }
+}
@@ -0,0 +1,68 @@
+package com.rqlite.jdbc;
+
+import com.rqlite.dto.QueryCursor;
+
+/**
+ * RowsCursor is a QueryCursor over rows already held in memory, used for
+ * results the driver builds itself such as generated keys.
+ */
+class RowsCursor implements QueryCursor {
+
+    private final String[] columns;
+    private final String[] types;
+    private final Object[][] rows;
+    private int index = -1;
+    private boolean started;
+
+    RowsCursor(String[] columns, String[] types, Object[][] rows) {
+        this.columns = columns;
+        this.types = types;
+        this.rows = rows;
+    }
+
+    @Override
+    public boolean nextResult() {
+        if (started) {
+            index = rows.length;
+            return false;
+        }
+        started = true;
+        return true;
+    }
+
+    @Override
+    public boolean next() {
+        started = true;
+        if (index + 1 >= rows.length) {
+            index = rows.length;
+            return false;
+        }
+        index++;
+        return true;
+    }
+
+    @Override
+    public Object[] row() {
+        return index >= 0 && index < rows.length ? rows[index] : null;
+    }
+
+    @Override
+    public String[] columns() {
+        return columns;
+    }
+
+    @Override
+    public String[] types() {
+        return types;
+    }
+
+    @Override
+    public String error() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+        index = rows.length;
+    }
+}
@@ -0,0 +1,121 @@
+package com.rqlite.jdbc;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import com.rqlite.Rqlite.ReadConsistencyLevel;
+import com.rqlite.impl.RqliteImpl;
+
+/**
+ * RqliteDriver is a JDBC driver for rqlite, built on RqliteImpl.
+ *
+ * URLs take the form {@code jdbc:rqlite:http://host:port} for a single node, or
+ * {@code jdbc:rqlite:config:/path/to/peers.config} for a peers config file as
+ * accepted by RqliteFactory.connect. The "level" property sets the read
+ * consistency level of queries and defaults to weak.
+ */
+public class RqliteDriver implements Driver {
+
+    public static final String PREFIX = "jdbc:rqlite:";
+    private static final String CONFIG_PREFIX = "config:";
+
+    static {
+        try {
+            DriverManager.registerDriver(new RqliteDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        Properties props = new Properties();
+        if (info != null) {
+            props.putAll(info);
+        }
+        String target = url.substring(PREFIX.length());
+        int q = target.indexOf('?');
+        if (q >= 0) {
+            for (String pair : target.substring(q + 1).split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    props.setProperty(pair.substring(0, eq), pair.substring(eq + 1));
+                }
+            }
+            target = target.substring(0, q);
+        }
+
+        RqliteImpl rqlite;
+        if (target.startsWith(CONFIG_PREFIX)) {
+            rqlite = new RqliteImpl(target.substring(CONFIG_PREFIX.length()));
+        } else {
+            try {
+                URI uri = new URI(target);
+                if (uri.getScheme() == null || uri.getHost() == null) {
+                    throw new SQLException("Invalid rqlite URL: " + url, "08001");
+                }
+                int port = uri.getPort() == -1 ? 4001 : uri.getPort();
+                rqlite = new RqliteImpl(uri.getScheme(), uri.getHost(), port);
+            } catch (URISyntaxException e) {
+                throw new SQLException("Invalid rqlite URL: " + url, "08001", e);
+            }
+        }
+        return new RqliteConnection(rqlite, url, level(props.getProperty("level")), props.getProperty("user"));
+    }
+
+    private static ReadConsistencyLevel level(String value) throws SQLException {
+        if (value == null) {
+            return ReadConsistencyLevel.WEAK;
+        }
+        try {
+            return ReadConsistencyLevel.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new SQLException("Unknown read consistency level: " + value, "08001", e);
+        }
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        DriverPropertyInfo level = new DriverPropertyInfo("level", info == null ? null : info.getProperty("level"));
+        level.description = "Read consistency level of queries";
+        level.choices = new String[]{"none", "weak", "strong"};
+        return new DriverPropertyInfo[]{level};
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 0;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 1;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("getParentLogger");
+    }
+}
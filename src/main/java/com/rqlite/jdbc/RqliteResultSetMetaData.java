@@ -0,0 +1,206 @@
+package com.rqlite.jdbc;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Locale;
+
+/**
+ * RqliteResultSetMetaData describes result columns from the names and declared
+ * types rqlite returns with each result.
+ */
+public class RqliteResultSetMetaData implements ResultSetMetaData {
+
+    private final String[] columns;
+    private final String[] types;
+
+    RqliteResultSetMetaData(String[] columns, String[] types) {
+        this.columns = columns;
+        this.types = types;
+    }
+
+    private void check(int column) throws SQLException {
+        if (column < 1 || column > columns.length) {
+            throw new SQLException("Column index out of range: " + column);
+        }
+    }
+
+    private String type(int column) throws SQLException {
+        check(column);
+        return column <= types.length && types[column - 1] != null ? types[column - 1] : "";
+    }
+
+    /** Maps a declared SQLite type to a JDBC type using SQLite's type affinity rules. */
+    static int sqlType(String declared) {
+        String t = declared.toUpperCase(Locale.ROOT);
+        if (t.contains("INT")) {
+            return Types.BIGINT;
+        }
+        if (t.contains("CHAR") || t.contains("CLOB") || t.contains("TEXT")) {
+            return Types.VARCHAR;
+        }
+        if (t.contains("BLOB")) {
+            return Types.BLOB;
+        }
+        if (t.isEmpty()) {
+            return Types.OTHER;
+        }
+        if (t.contains("REAL") || t.contains("FLOA") || t.contains("DOUB")) {
+            return Types.DOUBLE;
+        }
+        if (t.contains("BOOL")) {
+            return Types.BOOLEAN;
+        }
+        if (t.contains("DATETIME") || t.contains("TIMESTAMP")) {
+            return Types.TIMESTAMP;
+        }
+        if (t.contains("DATE")) {
+            return Types.DATE;
+        }
+        return Types.NUMERIC;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public boolean isAutoIncrement(int column) throws SQLException {
+        check(column);
+        return false;
+    }
+
+    @Override
+    public boolean isCaseSensitive(int column) throws SQLException {
+        return sqlType(type(column)) == Types.VARCHAR;
+    }
+
+    @Override
+    public boolean isSearchable(int column) throws SQLException {
+        check(column);
+        return true;
+    }
+
+    @Override
+    public boolean isCurrency(int column) throws SQLException {
+        check(column);
+        return false;
+    }
+
+    @Override
+    public int isNullable(int column) throws SQLException {
+        check(column);
+        return columnNullableUnknown;
+    }
+
+    @Override
+    public boolean isSigned(int column) throws SQLException {
+        int t = sqlType(type(column));
+        return t == Types.BIGINT || t == Types.DOUBLE || t == Types.NUMERIC;
+    }
+
+    @Override
+    public int getColumnDisplaySize(int column) throws SQLException {
+        check(column);
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public String getColumnLabel(int column) throws SQLException {
+        return getColumnName(column);
+    }
+
+    @Override
+    public String getColumnName(int column) throws SQLException {
+        check(column);
+        return columns[column - 1];
+    }
+
+    @Override
+    public String getSchemaName(int column) throws SQLException {
+        check(column);
+        return "";
+    }
+
+    @Override
+    public int getPrecision(int column) throws SQLException {
+        check(column);
+        return 0;
+    }
+
+    @Override
+    public int getScale(int column) throws SQLException {
+        check(column);
+        return 0;
+    }
+
+    @Override
+    public String getTableName(int column) throws SQLException {
+        check(column);
+        return "";
+    }
+
+    @Override
+    public String getCatalogName(int column) throws SQLException {
+        check(column);
+        return "";
+    }
+
+    @Override
+    public int getColumnType(int column) throws SQLException {
+        return sqlType(type(column));
+    }
+
+    @Override
+    public String getColumnTypeName(int column) throws SQLException {
+        return type(column);
+    }
+
+    @Override
+    public boolean isReadOnly(int column) throws SQLException {
+        check(column);
+        return true;
+    }
+
+    @Override
+    public boolean isWritable(int column) throws SQLException {
+        check(column);
+        return false;
+    }
+
+    @Override
+    public boolean isDefinitelyWritable(int column) throws SQLException {
+        check(column);
+        return false;
+    }
+
+    @Override
+    public String getColumnClassName(int column) throws SQLException {
+        switch (getColumnType(column)) {
+            case Types.BIGINT:
+                return Long.class.getName();
+            case Types.DOUBLE:
+                return Double.class.getName();
+            case Types.BLOB:
+                return byte[].class.getName();
+            case Types.VARCHAR:
+                return String.class.getName();
+            default:
+                return Object.class.getName();
+        }
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
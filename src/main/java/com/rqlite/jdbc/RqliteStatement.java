@@ -0,0 +1,405 @@
+package com.rqlite.jdbc;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.rqlite.NodeUnavailableException;
+import com.rqlite.dto.ExecuteResults;
+import com.rqlite.dto.ParameterizedStatement;
+import com.rqlite.dto.QueryCursor;
+
+/**
+ * RqliteStatement runs SQL through the connection's RqliteImpl. Queries are
+ * read through a streaming QueryCursor, and batches are sent as one
+ * multi-statement /db/execute request.
+ */
+public class RqliteStatement implements Statement {
+
+    private static final String[] QUERY_KEYWORDS = {"SELECT", "WITH", "PRAGMA", "EXPLAIN", "VALUES"};
+
+    protected final RqliteConnection connection;
+    private final List<ParameterizedStatement> batch = new ArrayList<>();
+
+    private ResultSet resultSet;
+    private int updateCount = -1;
+    private long lastInsertId;
+    private int maxRows;
+    private int fetchSize;
+    private boolean closed;
+    private boolean closeOnCompletion;
+
+    RqliteStatement(RqliteConnection connection) {
+        this.connection = connection;
+    }
+
+    void checkOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Statement is closed");
+        }
+        connection.checkOpen();
+    }
+
+    static boolean isQuery(String sql) {
+        String s = sql.trim();
+        while (s.startsWith("(")) {
+            s = s.substring(1).trim();
+        }
+        for (String keyword : QUERY_KEYWORDS) {
+            if (s.regionMatches(true, 0, keyword, 0, keyword.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    ResultSet query(ParameterizedStatement stmt) throws SQLException {
+        checkOpen();
+        closeResultSet();
+        QueryCursor cursor;
+        try {
+            cursor = connection.rqlite().Cursor(new ParameterizedStatement[]{stmt}, false,
+                    connection.getReadConsistencyLevel());
+        } catch (NodeUnavailableException e) {
+            throw RqliteConnection.unavailable(e);
+        }
+        try {
+            if (cursor.nextResult() && cursor.error() != null) {
+                String error = cursor.error();
+                cursor.close();
+                throw new SQLException(error);
+            }
+        } catch (IOException e) {
+            closeQuietly(cursor);
+            throw new SQLException(e.getMessage(), e);
+        }
+        resultSet = new RqliteResultSet(this, cursor, maxRows);
+        updateCount = -1;
+        return resultSet;
+    }
+
+    int update(ParameterizedStatement stmt) throws SQLException {
+        checkOpen();
+        closeResultSet();
+        ExecuteResults results = execute(new ParameterizedStatement[]{stmt});
+        ExecuteResults.Result result = results.results[0];
+        if (result.error != null) {
+            throw new SQLException(result.error);
+        }
+        lastInsertId = result.lastInsertId;
+        updateCount = result.rowsAffected;
+        return updateCount;
+    }
+
+    private ExecuteResults execute(ParameterizedStatement[] stmts) throws SQLException {
+        ExecuteResults results;
+        try {
+            results = connection.rqlite().Execute(stmts, false);
+        } catch (NodeUnavailableException e) {
+            throw RqliteConnection.unavailable(e);
+        }
+        if (results == null || results.results == null || results.results.length != stmts.length) {
+            throw new SQLException("Unexpected response from rqlite");
+        }
+        return results;
+    }
+
+    void addBatch(ParameterizedStatement stmt) throws SQLException {
+        checkOpen();
+        batch.add(stmt);
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        checkOpen();
+        closeResultSet();
+        if (batch.isEmpty()) {
+            return new int[0];
+        }
+        ParameterizedStatement[] stmts = batch.toArray(new ParameterizedStatement[batch.size()]);
+        batch.clear();
+        ExecuteResults results = execute(stmts);
+        int[] counts = new int[stmts.length];
+        String error = null;
+        for (int i = 0; i < counts.length; i++) {
+            ExecuteResults.Result r = results.results[i];
+            if (r.error != null) {
+                counts[i] = EXECUTE_FAILED;
+                if (error == null) {
+                    error = r.error;
+                }
+            } else {
+                counts[i] = r.rowsAffected;
+                lastInsertId = r.lastInsertId;
+            }
+        }
+        if (error != null) {
+            throw new BatchUpdateException(error, counts);
+        }
+        return counts;
+    }
+
+    private void closeResultSet() throws SQLException {
+        if (resultSet != null) {
+            ResultSet rs = resultSet;
+            resultSet = null;
+            rs.close();
+        }
+    }
+
+    void resultSetClosed(ResultSet rs) throws SQLException {
+        if (rs == resultSet) {
+            resultSet = null;
+            if (closeOnCompletion) {
+                close();
+            }
+        }
+    }
+
+    static void closeQuietly(QueryCursor cursor) {
+        try {
+            cursor.close();
+        } catch (IOException e) {
+            // ignore, an error is already being reported
+        }
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        return query(new ParameterizedStatement(sql, null));
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        return update(new ParameterizedStatement(sql, null));
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        if (isQuery(sql)) {
+            executeQuery(sql);
+            return true;
+        }
+        executeUpdate(sql);
+        return false;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closeResultSet();
+        closed = true;
+    }
+
+    @Override
+    public int getMaxFieldSize() {
+        return 0;
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) {
+    }
+
+    @Override
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        if (max < 0) {
+            throw new SQLException("max rows must not be negative");
+        }
+        this.maxRows = max;
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean enable) {
+    }
+
+    @Override
+    public int getQueryTimeout() {
+        return 0;
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) {
+    }
+
+    @Override
+    public void cancel() throws SQLException {
+        throw new SQLFeatureNotSupportedException("cancel");
+    }
+
+    @Override
+    public SQLWarning getWarnings() {
+        return null;
+    }
+
+    @Override
+    public void clearWarnings() {
+    }
+
+    @Override
+    public void setCursorName(String name) throws SQLException {
+        throw new SQLFeatureNotSupportedException("setCursorName");
+    }
+
+    @Override
+    public ResultSet getResultSet() {
+        return resultSet;
+    }
+
+    @Override
+    public int getUpdateCount() {
+        return updateCount;
+    }
+
+    @Override
+    public boolean getMoreResults() throws SQLException {
+        closeResultSet();
+        updateCount = -1;
+        return false;
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        if (direction != ResultSet.FETCH_FORWARD) {
+            throw new SQLFeatureNotSupportedException("Only FETCH_FORWARD is supported");
+        }
+    }
+
+    @Override
+    public int getFetchDirection() {
+        return ResultSet.FETCH_FORWARD;
+    }
+
+    @Override
+    public void setFetchSize(int rows) {
+        this.fetchSize = rows;
+    }
+
+    @Override
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    @Override
+    public int getResultSetConcurrency() {
+        return ResultSet.CONCUR_READ_ONLY;
+    }
+
+    @Override
+    public int getResultSetType() {
+        return ResultSet.TYPE_FORWARD_ONLY;
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        addBatch(new ParameterizedStatement(sql, null));
+    }
+
+    @Override
+    public void clearBatch() {
+        batch.clear();
+    }
+
+    @Override
+    public Connection getConnection() {
+        return connection;
+    }
+
+    @Override
+    public boolean getMoreResults(int current) throws SQLException {
+        return getMoreResults();
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() throws SQLException {
+        checkOpen();
+        return new RqliteResultSet(this, new RowsCursor(new String[]{"last_insert_rowid()"},
+                new String[]{"integer"}, new Object[][]{{BigDecimal.valueOf(lastInsertId)}}), 0);
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return executeUpdate(sql);
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        return executeUpdate(sql);
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        return executeUpdate(sql);
+    }
+
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        return execute(sql);
+    }
+
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        return execute(sql);
+    }
+
+    @Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        return execute(sql);
+    }
+
+    @Override
+    public int getResultSetHoldability() {
+        return ResultSet.CLOSE_CURSORS_AT_COMMIT;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void setPoolable(boolean poolable) {
+    }
+
+    @Override
+    public boolean isPoolable() {
+        return false;
+    }
+
+    @Override
+    public void closeOnCompletion() {
+        this.closeOnCompletion = true;
+    }
+
+    @Override
+    public boolean isCloseOnCompletion() {
+        return closeOnCompletion;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
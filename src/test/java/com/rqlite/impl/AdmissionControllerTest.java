@@ -0,0 +1,167 @@
+package com.rqlite.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.rqlite.NodeUnavailableException;
+import com.rqlite.RequestRejectedException;
+import com.rqlite.Rqlite.ReadConsistencyLevel;
+import com.rqlite.dto.QueryCursor;
+import com.rqlite.impl.AdmissionController.Permit;
+import com.rqlite.impl.AdmissionController.Priority;
+import com.rqlite.load.LocalRqliteCluster;
+
+public class AdmissionControllerTest {
+
+    private static Thread waiter(AdmissionController controller, Priority priority, List<Priority> admitted,
+            CountDownLatch done) {
+        Thread t = new Thread(() -> {
+            try {
+                Permit permit = controller.acquire("node", priority);
+                admitted.add(priority);
+                permit.release(true);
+            } catch (RequestRejectedException e) {
+                // shed
+            }
+            done.countDown();
+        });
+        t.start();
+        return t;
+    }
+
+    private static void awaitQueued(Thread t) throws InterruptedException {
+        while (t.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testInteractiveAdmittedBeforeBulk() throws Exception {
+        AdmissionController controller = new AdmissionController(1, 1, 1, 10, 5000);
+        Permit held = controller.acquire("node", Priority.BULK);
+
+        List<Priority> admitted = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(2);
+        awaitQueued(waiter(controller, Priority.BULK, admitted, done));
+        awaitQueued(waiter(controller, Priority.INTERACTIVE, admitted, done));
+
+        held.release(true);
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Priority.INTERACTIVE, admitted.get(0));
+        Assert.assertEquals(Priority.BULK, admitted.get(1));
+    }
+
+    @Test
+    public void testShedsLowestPriorityWhenQueueFull() throws Exception {
+        AdmissionController controller = new AdmissionController(1, 1, 1, 1, 5000);
+        Permit held = controller.acquire("node", Priority.BULK);
+
+        List<Priority> admitted = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(2);
+        awaitQueued(waiter(controller, Priority.BULK, admitted, done));
+        awaitQueued(waiter(controller, Priority.INTERACTIVE, admitted, done));
+        try {
+            controller.acquire("node", Priority.BULK);
+            Assert.fail("expected the request to be shed");
+        } catch (RequestRejectedException e) {
+            // queue is full of higher or equal priority requests
+        }
+
+        held.release(true);
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Collections.singletonList(Priority.INTERACTIVE), admitted);
+    }
+
+    @Test(expected = RequestRejectedException.class)
+    public void testRejectsAfterMaxWait() throws Exception {
+        AdmissionController controller = new AdmissionController(1, 1, 1, 10, 50);
+        controller.acquire("node", Priority.INTERACTIVE);
+        controller.acquire("node", Priority.INTERACTIVE);
+    }
+
+    @Test
+    public void testClientPriorities() throws Exception {
+        List<Priority> admitted = Collections.synchronizedList(new ArrayList<>());
+        AdmissionController controller = new AdmissionController() {
+            @Override
+            public Permit acquire(Object node, Priority priority) throws RequestRejectedException {
+                admitted.add(priority);
+                return super.acquire(node, priority);
+            }
+        };
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(1, 1)) {
+            RqliteImpl rqlite = new RqliteImpl(cluster.config());
+            rqlite.setAdmissionController(controller);
+            rqlite.Query("SELECT 1", ReadConsistencyLevel.WEAK);
+            rqlite.Execute("INSERT 1");
+            Assert.assertEquals(Arrays.asList(Priority.INTERACTIVE, Priority.BULK), admitted);
+
+            admitted.clear();
+            rqlite.setAdmissionPriorities(Priority.NORMAL, Priority.NORMAL);
+            rqlite.Query("SELECT 1", ReadConsistencyLevel.WEAK);
+            rqlite.Execute("INSERT 1");
+            Assert.assertEquals(Arrays.asList(Priority.NORMAL, Priority.NORMAL), admitted);
+        } catch (NodeUnavailableException e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCursorHoldsAdmissionUntilClosed() throws Exception {
+        AdmissionController controller = new AdmissionController(1, 1, 1, 10, 50);
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(1, 1)) {
+            RqliteImpl rqlite = new RqliteImpl(cluster.config());
+            rqlite.setAdmissionController(controller);
+            QueryCursor cursor = rqlite.Cursor(new String[] {"SELECT 1"}, false, ReadConsistencyLevel.WEAK);
+            try {
+                rqlite.Query("SELECT 1", ReadConsistencyLevel.WEAK);
+                Assert.fail("query admitted while the cursor was open");
+            } catch (RequestRejectedException e) {
+                // expected
+            }
+            cursor.close();
+            cursor.close();
+            rqlite.Query("SELECT 1", ReadConsistencyLevel.WEAK);
+            rqlite.Query("SELECT 1", ReadConsistencyLevel.WEAK);
+        }
+    }
+
+    @Test
+    public void testOneLimitPerNode() throws Exception {
+        AdmissionController controller = new AdmissionController(1, 1, 1, 10, 50);
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(2, 1)) {
+            RqliteImpl rqlite = new RqliteImpl(cluster.config());
+            rqlite.setAdmissionController(controller);
+            rqlite.setParallelQueries(2);
+            try (QueryCursor cursor = rqlite.Cursor(new String[] {"SELECT 1"}, false, ReadConsistencyLevel.WEAK)) {
+                // one slice goes to the node the cursor holds
+                rqlite.Query(new String[] {"SELECT 1", "SELECT 2"}, false, ReadConsistencyLevel.NONE);
+                Assert.fail("slice admitted past the node's limit");
+            } catch (RequestRejectedException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testLimitAdapts() throws Exception {
+        AdmissionController controller = new AdmissionController(10, 1, 100, 10, 1000);
+        for (int i = 0; i < 200; i++) {
+            controller.acquire("node", Priority.NORMAL).release(true);
+        }
+        int grown = controller.getLimit("node");
+        Assert.assertTrue(grown > 10);
+
+        for (int i = 0; i < 10; i++) {
+            controller.acquire("node", Priority.NORMAL).release(false);
+        }
+        Assert.assertTrue(controller.getLimit("node") < grown);
+    }
+}
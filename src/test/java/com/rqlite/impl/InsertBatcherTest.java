@@ -0,0 +1,118 @@
+package com.rqlite.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.rqlite.dto.ExecuteResults;
+import com.rqlite.dto.ParameterizedStatement;
+import com.rqlite.dto.TypedStatement;
+import com.rqlite.load.LocalRqliteCluster;
+
+public class InsertBatcherTest {
+
+    private static final String INSERT = "INSERT INTO foo(id, name) VALUES (?, ?)";
+
+    private static ParameterizedStatement insert(int id) {
+        return new ParameterizedStatement(INSERT, new Object[] {id, "name-" + id});
+    }
+
+    @Test
+    public void testRewriteRuns() {
+        InsertBatcher batcher = InsertBatcher.rewrite(new ParameterizedStatement[] {
+                insert(1), insert(2), insert(3), insert(4), insert(5),
+                new ParameterizedStatement("DELETE FROM foo WHERE id = ?", new Object[] {1}),
+                insert(6) }, 4);
+        ParameterizedStatement[] stmts = batcher.statements;
+        Assert.assertEquals(5, stmts.length);
+        Assert.assertEquals("INSERT INTO foo(id, name) VALUES (?, ?),(?, ?)", stmts[0].query);
+        Assert.assertArrayEquals(new Object[] {1, "name-1", 2, "name-2"}, stmts[0].arguments);
+        Assert.assertArrayEquals(new Object[] {3, "name-3", 4, "name-4"}, stmts[1].arguments);
+        Assert.assertEquals(INSERT, stmts[2].query);
+        Assert.assertEquals(INSERT, stmts[4].query);
+
+        ExecuteResults results = new ExecuteResults();
+        results.results = new ExecuteResults.Result[5];
+        for (int i = 0; i < 5; i++) {
+            results.results[i] = new ExecuteResults.Result();
+        }
+        results.results[0].lastInsertId = 2;
+        results.results[0].rowsAffected = 2;
+        results.results[1].error = "UNIQUE constraint failed: foo.id";
+        results.results[2].lastInsertId = 5;
+        results.results[2].rowsAffected = 1;
+
+        ExecuteResults expanded = batcher.expand(results);
+        Assert.assertEquals(7, expanded.results.length);
+        Assert.assertEquals(0, expanded.results[0].lastInsertId);
+        Assert.assertEquals(2, expanded.results[1].lastInsertId);
+        Assert.assertEquals(1, expanded.results[1].rowsAffected);
+        Assert.assertEquals("UNIQUE constraint failed: foo.id", expanded.results[2].error);
+        Assert.assertEquals("UNIQUE constraint failed: foo.id", expanded.results[3].error);
+        Assert.assertEquals(5, expanded.results[4].lastInsertId);
+    }
+
+    @Test
+    public void testExplicitIdsAreNotCountedBack() {
+        InsertBatcher batcher = InsertBatcher.rewrite(new ParameterizedStatement[] {insert(10), insert(3)},
+                InsertBatcher.MAX_PARAMETERS);
+        Assert.assertEquals(1, batcher.statements.length);
+
+        ExecuteResults results = new ExecuteResults();
+        results.results = new ExecuteResults.Result[] {new ExecuteResults.Result()};
+        results.results[0].lastInsertId = 3;
+        results.results[0].rowsAffected = 2;
+
+        ExecuteResults expanded = batcher.expand(results);
+        Assert.assertEquals(2, expanded.results.length);
+        // 10 is not 3 - 1, so the first row does not claim a rowid
+        Assert.assertEquals(0, expanded.results[0].lastInsertId);
+        Assert.assertEquals(3, expanded.results[1].lastInsertId);
+    }
+
+    @Test
+    public void testTypedStatements() {
+        InsertBatcher batcher = InsertBatcher.rewrite(new ParameterizedStatement[] {
+                new TypedStatement("INSERT INTO foo VALUES(?, ?)").bindLong(1).bindDouble(0.5),
+                new TypedStatement("INSERT INTO foo VALUES(?, ?)").bindLong(2).bindNull() }, InsertBatcher.MAX_PARAMETERS);
+        TypedStatement combined = (TypedStatement) batcher.statements[0];
+        Assert.assertEquals("INSERT INTO foo VALUES(?, ?),(?, ?)", combined.query);
+        Assert.assertEquals(4, combined.parameterCount());
+        Assert.assertEquals(2, combined.getLong(2));
+        Assert.assertEquals(TypedStatement.Kind.NULL, combined.kind(3));
+
+        String quoted = "insert or replace into main.\"foo bar\" (id) values (?);";
+        batcher = InsertBatcher.rewrite(new ParameterizedStatement[] {
+                new ParameterizedStatement(quoted, new Object[] {1}),
+                new ParameterizedStatement(quoted, new Object[] {2}) }, InsertBatcher.MAX_PARAMETERS);
+        Assert.assertEquals("insert or replace into main.\"foo bar\" (id) values (?),(?);", batcher.statements[0].query);
+    }
+
+    @Test
+    public void testUnsupportedStatementsUntouched() {
+        String[] sql = {
+                "INSERT INTO foo VALUES (?) ON CONFLICT DO NOTHING",
+                "INSERT OR IGNORE INTO foo VALUES (?)",
+                "INSERT INTO foo SELECT 1 UNION VALUES (?)",
+                "INSERT INTO foo VALUES (?, 1)",
+                "INSERT INTO main.\"foo bar\" (id) VALUES (?) RETURNING id",
+                "UPDATE foo SET id = ?" };
+        for (String s : sql) {
+            Assert.assertNull(s, InsertBatcher.rewrite(new ParameterizedStatement[] {
+                    new ParameterizedStatement(s, new Object[] {1}),
+                    new ParameterizedStatement(s, new Object[] {2}) }, InsertBatcher.MAX_PARAMETERS));
+        }
+    }
+
+    @Test
+    public void testExecuteRewritesInserts() throws Exception {
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(1, 1)) {
+            RqliteImpl rqlite = new RqliteImpl(cluster.config());
+            rqlite.setRewriteInserts(true);
+            ExecuteResults results = rqlite.Execute(new ParameterizedStatement[] {insert(1), insert(2), insert(3)}, false);
+            Assert.assertEquals(3, results.results.length);
+            Assert.assertEquals(0, results.results[0].lastInsertId);
+            Assert.assertEquals(1, results.results[0].rowsAffected);
+            Assert.assertEquals(1, cluster.node(0).requests());
+        }
+    }
+}
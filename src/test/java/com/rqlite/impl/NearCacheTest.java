@@ -0,0 +1,57 @@
+package com.rqlite.impl;
+
+import java.math.BigDecimal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.rqlite.Rqlite;
+import com.rqlite.load.LocalRqliteCluster;
+
+public class NearCacheTest {
+
+    @Test
+    public void testNormalize() {
+        Assert.assertEquals(NearCache.normalize(7), NearCache.normalize(new BigDecimal("7.00")));
+        Assert.assertEquals(NearCache.normalize(10L), NearCache.normalize(new BigDecimal("1E+1")));
+        Assert.assertEquals(NearCache.normalize(0.5), NearCache.normalize(new BigDecimal("0.50")));
+        Assert.assertEquals("x", NearCache.normalize("x"));
+    }
+
+    @Test
+    public void testLookupsAndRefresh() throws Exception {
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(1, 3);
+                NearCache cache = new NearCache(new RqliteImpl(cluster.config()), Rqlite.ReadConsistencyLevel.NONE, 60000, 0)) {
+            // the stand-in answers every query with columns (id, name); name
+            // takes the place of the watermark column the cache appends
+            NearCache.Table table = cache.register("foo", "id", "name");
+            Assert.assertEquals(1, cluster.node(0).requests());
+            Assert.assertEquals(3, table.size());
+            Assert.assertArrayEquals(new String[] {"id"}, table.columns());
+            Assert.assertArrayEquals(new Object[] {new BigDecimal(2)}, table.get(2));
+            Assert.assertNull(table.get(4L));
+
+            for (int i = 0; i < 10; i++) {
+                table.get(1);
+            }
+            Assert.assertEquals(1, cluster.node(0).requests());
+
+            cache.refreshAll();
+            Assert.assertEquals(2, cluster.node(0).requests());
+            Assert.assertEquals(3, table.size());
+        }
+    }
+
+    @Test
+    public void testEmptyTableIsPolledNotReloaded() throws Exception {
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(1, 0);
+                NearCache cache = new NearCache(new RqliteImpl(cluster.config()), Rqlite.ReadConsistencyLevel.NONE, 60000, 0)) {
+            NearCache.Table table = cache.register("foo", "id", "name");
+            Assert.assertEquals(0, table.size());
+            Assert.assertFalse(cluster.node(0).lastQuery().contains("IS NOT NULL"));
+
+            cache.refreshAll();
+            Assert.assertTrue(cluster.node(0).lastQuery().contains("IS NOT NULL"));
+        }
+    }
+}
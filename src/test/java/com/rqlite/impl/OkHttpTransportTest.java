@@ -0,0 +1,56 @@
+package com.rqlite.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.rqlite.Rqlite;
+import com.rqlite.dto.ExecuteResults;
+import com.rqlite.dto.Pong;
+import com.rqlite.dto.QueryResults;
+import com.rqlite.load.LocalRqliteCluster;
+
+public class OkHttpTransportTest {
+
+    @Test
+    public void testRequestsAndFailover() throws Exception {
+        OkHttpTransport transport = new OkHttpTransport();
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(2, 2)) {
+            RqliteImpl rqlite = new RqliteImpl(cluster.config());
+            rqlite.setHttpTransport(transport);
+
+            Pong pong = rqlite.Ping();
+            Assert.assertEquals("local-standin", pong.version);
+
+            ExecuteResults results = rqlite.Execute(new String[] {"INSERT INTO foo(id) VALUES(1)", "INSERT INTO foo(id) VALUES(2)"}, false);
+            Assert.assertEquals(2, results.results.length);
+
+            QueryResults rows = rqlite.Query("SELECT * FROM foo", Rqlite.ReadConsistencyLevel.WEAK);
+            Assert.assertEquals(2, rows.results[0].values.length);
+
+            cluster.node(0).stop();
+            rows = rqlite.Query("SELECT * FROM foo", Rqlite.ReadConsistencyLevel.WEAK);
+            Assert.assertEquals(2, rows.results[0].values.length);
+            // the probe and the retried query
+            Assert.assertEquals(2, cluster.node(1).requests());
+        } finally {
+            transport.shutdown();
+        }
+    }
+
+    @Test
+    public void testRedirectToLeaderKeepsTheBody() throws Exception {
+        OkHttpTransport transport = new OkHttpTransport();
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(2, 2)) {
+            RqliteImpl rqlite = new RqliteImpl(cluster.config());
+            rqlite.setHttpTransport(transport);
+            cluster.node(0).setRedirectTo(cluster.node(1));
+
+            ExecuteResults results = rqlite.Execute(new String[] {"INSERT INTO foo(id) VALUES(1)", "INSERT INTO foo(id) VALUES(2)"}, false);
+            Assert.assertEquals(2, results.results.length);
+            Assert.assertEquals(1, cluster.node(0).requests());
+            Assert.assertEquals(1, cluster.node(1).requests());
+        } finally {
+            transport.shutdown();
+        }
+    }
+}
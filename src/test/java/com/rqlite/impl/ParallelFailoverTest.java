@@ -0,0 +1,58 @@
+package com.rqlite.impl;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.rqlite.NodeUnavailableException;
+import com.rqlite.dto.ExecuteResults;
+import com.rqlite.load.LocalRqliteCluster;
+
+public class ParallelFailoverTest {
+
+    @Test
+    public void testFailoverSkipsSlowPeers() throws IOException, NodeUnavailableException {
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(3, 1)) {
+            RqliteImpl rqlite = new RqliteImpl(cluster.config());
+            Assert.assertNotNull(rqlite.Execute("INSERT 1"));
+
+            cluster.node(0).stop();
+            cluster.node(1).setLatency(3000, 0);
+
+            long start = System.currentTimeMillis();
+            ExecuteResults results = rqlite.Execute("INSERT 2");
+            long elapsed = System.currentTimeMillis() - start;
+            Assert.assertEquals(1, results.results.length);
+            Assert.assertTrue("failover took " + elapsed + "ms", elapsed < 2000);
+        }
+    }
+
+    @Test
+    public void testFailoverSkipsPeersThatFailedTheRequest() throws IOException, NodeUnavailableException {
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(3, 1)) {
+            RqliteImpl rqlite = new RqliteImpl(cluster.config());
+            rqlite.setTimeoutDelay(2000);
+            cluster.node(0).stop();
+            // node 1 answers /status first but rejects every request
+            cluster.node(1).setLeaderless(true);
+            cluster.node(2).setLatency(200, 0);
+
+            long start = System.currentTimeMillis();
+            ExecuteResults results = rqlite.Execute("INSERT 1");
+            Assert.assertEquals(1, results.results.length);
+            Assert.assertTrue(System.currentTimeMillis() - start < 2000);
+        }
+    }
+
+    @Test(expected = NodeUnavailableException.class)
+    public void testFailoverGivesUp() throws IOException, NodeUnavailableException {
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(2, 1)) {
+            RqliteImpl rqlite = new RqliteImpl(cluster.config());
+            rqlite.setTimeoutDelay(500);
+            cluster.node(0).stop();
+            cluster.node(1).stop();
+            rqlite.Execute("INSERT 1");
+        }
+    }
+}
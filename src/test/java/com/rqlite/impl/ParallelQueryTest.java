@@ -0,0 +1,75 @@
+package com.rqlite.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.rqlite.Rqlite;
+import com.rqlite.dto.QueryResults;
+import com.rqlite.load.LocalRqliteCluster;
+
+public class ParallelQueryTest {
+
+    @Test
+    public void testStatementsSpreadOverPeers() throws Exception {
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(3, 1)) {
+            RqliteImpl rqlite = new RqliteImpl(cluster.config());
+            rqlite.setParallelQueries(3);
+            String[] stmts = new String[7];
+            for (int i = 0; i < stmts.length; i++) {
+                stmts[i] = "SELECT " + i;
+            }
+
+            QueryResults results = rqlite.Query(stmts, false, Rqlite.ReadConsistencyLevel.NONE);
+            Assert.assertEquals(7, results.results.length);
+            for (int i = 0; i < cluster.size(); i++) {
+                Assert.assertEquals(1, cluster.node(i).requests());
+            }
+
+            // transactions and stronger levels still go to one node
+            rqlite.Query(stmts, true, Rqlite.ReadConsistencyLevel.NONE);
+            rqlite.Query(stmts, false, Rqlite.ReadConsistencyLevel.WEAK);
+            Assert.assertEquals(3, cluster.node(0).requests());
+        }
+    }
+
+    @Test
+    public void testFailedSliceFailsOver() throws Exception {
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(2, 1)) {
+            RqliteImpl rqlite = new RqliteImpl(cluster.config());
+            rqlite.setParallelQueries(2);
+            cluster.node(1).stop();
+
+            QueryResults results = rqlite.Query(new String[] {"SELECT 1", "SELECT 2", "SELECT 3"}, false,
+                    Rqlite.ReadConsistencyLevel.NONE);
+            Assert.assertEquals(3, results.results.length);
+            // its own slice, then a probe and the retried slice
+            Assert.assertEquals(3, cluster.node(0).requests());
+
+            // the failed peer is skipped rather than retried
+            rqlite.Query(new String[] {"SELECT 1", "SELECT 2", "SELECT 3"}, false, Rqlite.ReadConsistencyLevel.NONE);
+            Assert.assertEquals(5, cluster.node(0).requests());
+        }
+    }
+
+    @Test
+    public void testSlicesAreTraced() throws Exception {
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(3, 1)) {
+            RqliteImpl rqlite = new RqliteImpl(cluster.config());
+            rqlite.setParallelQueries(3);
+            List<RequestTrace> traces = Collections.synchronizedList(new ArrayList<>());
+            rqlite.setRequestTracer(traces::add);
+
+            rqlite.Query(new String[] {"SELECT 1", "SELECT 2", "SELECT 3"}, false, Rqlite.ReadConsistencyLevel.NONE);
+            Assert.assertEquals(3, traces.size());
+            for (RequestTrace trace : traces) {
+                Assert.assertEquals("query", trace.getOperation());
+                Assert.assertEquals(1, trace.getAttempts().size());
+                Assert.assertTrue(trace.getServerNanos() > 0);
+            }
+        }
+    }
+}
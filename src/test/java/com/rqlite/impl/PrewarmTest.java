@@ -0,0 +1,23 @@
+package com.rqlite.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.rqlite.load.LocalRqliteCluster;
+
+public class PrewarmTest {
+
+    @Test
+    public void testPrewarmEveryPeer() throws Exception {
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(3, 1)) {
+            cluster.node(2).stop();
+            RqliteImpl rqlite = new RqliteImpl(cluster.config());
+            rqlite.setTimeoutDelay(500);
+            rqlite.prewarm(2).get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(2, cluster.node(0).requests());
+            Assert.assertEquals(2, cluster.node(1).requests());
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.rqlite.impl;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.rqlite.Rqlite;
+import com.rqlite.dto.ParameterizedStatement;
+import com.rqlite.dto.TypedStatement;
 
 public class RequestFactoryTest {
     @Test
@@ -32,6 +37,22 @@ public class RequestFactoryTest {
         Assert.assertEquals("http://localhost:4001/db/query?level=none", request.getUrl());
     }
 
+    @Test
+    public void testRequestFactoryUrlsAreNotShared() throws IOException {
+        RequestFactory factory = new RequestFactory("http", "localhost", 4001);
+        QueryRequest weak = factory.buildQueryRequest(new String[] {});
+        QueryRequest none = factory.buildQueryRequest(new String[] {});
+        weak.setReadConsistencyLevel(Rqlite.ReadConsistencyLevel.WEAK).enableTransaction(true);
+        none.setReadConsistencyLevel(Rqlite.ReadConsistencyLevel.NONE);
+        Assert.assertEquals("http://localhost:4001/db/query?level=weak&transaction=true", weak.getUrl());
+        Assert.assertEquals("http://localhost:4001/db/query?level=none", none.getUrl());
+        Assert.assertEquals("http://localhost:4001/db/query", factory.buildQueryRequest(new String[] {}).getUrl());
+
+        new RequestFactory("https", "otherhost", 4003).AdoptRequest(weak);
+        Assert.assertEquals("https://otherhost:4003/db/query?level=weak&transaction=true", weak.getUrl());
+        Assert.assertEquals("http://localhost:4001/db/query?level=none", none.getUrl());
+    }
+
     @Test
     public void testRequestFactorQueryStatement() throws IOException {
         RequestFactory factory = new RequestFactory("http", "localhost", 4001);
@@ -76,4 +97,46 @@ public class RequestFactoryTest {
                 request.getBody());
     }
 
+    @Test
+    public void testRequestFactorExecuteBinaryArguments() throws IOException {
+        RequestFactory factory = new RequestFactory("http", "localhost", 4001);
+        ByteBuffer direct = ByteBuffer.allocateDirect(5);
+        direct.put("hello".getBytes(StandardCharsets.UTF_8)).flip();
+        ExecuteRequest request = factory.buildExecuteRequest(new ParameterizedStatement[] {
+                new ParameterizedStatement("INSERT INTO foo(data) VALUES(?)", new Object[] {"hello".getBytes(StandardCharsets.UTF_8)}),
+                new ParameterizedStatement("INSERT INTO foo(data) VALUES(?)", new Object[] {direct}),
+                new ParameterizedStatement("INSERT INTO foo(data) VALUES(?)", new Object[] {ByteBuffer.wrap("xhellox".getBytes(StandardCharsets.UTF_8), 1, 5)}) });
+        Assert.assertEquals("[[\"INSERT INTO foo(data) VALUES(?)\",\"aGVsbG8=\"],"
+                + "[\"INSERT INTO foo(data) VALUES(?)\",\"aGVsbG8=\"],"
+                + "[\"INSERT INTO foo(data) VALUES(?)\",\"aGVsbG8=\"]]", request.getBody());
+        Assert.assertEquals(0, direct.position());
+    }
+
+    @Test
+    public void testRequestFactorExecuteTypedStatement() throws IOException {
+        RequestFactory factory = new RequestFactory("http", "localhost", 4001);
+        TypedStatement typed = new TypedStatement("INSERT INTO foo VALUES(?, ?, ?, ?, ?)", 2)
+                .bindLong(Long.MAX_VALUE).bindDouble(0.5).bindString("fiona").bindBytes("hello".getBytes(StandardCharsets.UTF_8))
+                .bindNull();
+        ExecuteRequest request = factory.buildExecuteRequest(new ParameterizedStatement[] {
+                typed,
+                new ParameterizedStatement("INSERT INTO foo VALUES(?, ?, ?, ?)", new Object[] {7, 1.5, "x", null}) });
+        Assert.assertEquals("[[\"INSERT INTO foo VALUES(?, ?, ?, ?, ?)\",9223372036854775807,0.5,\"fiona\",\"aGVsbG8=\",null],"
+                + "[\"INSERT INTO foo VALUES(?, ?, ?, ?)\",7,1.5,\"x\",null]]", request.getBody());
+        Assert.assertEquals(5, typed.parameterCount());
+        Assert.assertEquals(0, typed.clearBindings().parameterCount());
+    }
+
+    @Test
+    public void testRequestFactorExecuteStreamArgumentRewritten() throws IOException {
+        RequestFactory factory = new RequestFactory("http", "localhost", 4001);
+        ExecuteRequest request = factory.buildExecuteRequest(new ParameterizedStatement[] {
+                new ParameterizedStatement("INSERT INTO foo(data) VALUES(?)",
+                        new Object[] {new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8))}) });
+        String expected = "[[\"INSERT INTO foo(data) VALUES(?)\",\"aGVsbG8=\"]]";
+        Assert.assertEquals(expected, request.getBody());
+        // failover, spooling and deduplication write the body again
+        Assert.assertEquals(expected, request.getBody());
+        Assert.assertEquals(expected, new String(request.getContent(), StandardCharsets.UTF_8));
+    }
 }
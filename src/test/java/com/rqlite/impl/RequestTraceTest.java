@@ -0,0 +1,72 @@
+package com.rqlite.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.rqlite.Rqlite;
+import com.rqlite.dto.ParameterizedStatement;
+import com.rqlite.load.LocalRqliteCluster;
+
+public class RequestTraceTest {
+
+    @Test
+    public void testTraceRecordsFailover() throws Exception {
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(2, 1)) {
+            RqliteImpl rqlite = new RqliteImpl(cluster.config());
+            List<RequestTrace> traces = new ArrayList<>();
+            rqlite.setRequestTracer(traces::add);
+            cluster.node(0).stop();
+
+            rqlite.Query("SELECT * FROM foo", Rqlite.ReadConsistencyLevel.NONE);
+
+            Assert.assertEquals(1, traces.size());
+            RequestTrace trace = traces.get(0);
+            Assert.assertEquals("query", trace.getOperation());
+            Assert.assertEquals(2, trace.getAttempts().size());
+            Assert.assertNotNull(trace.getAttempts().get(0).error);
+            Assert.assertNull(trace.getAttempts().get(1).error);
+            Assert.assertTrue(trace.getAttempts().get(1).node.endsWith(":" + cluster.node(1).port()));
+            Assert.assertTrue(trace.getProbeNanos() > 0);
+            Assert.assertTrue(trace.getServerNanos() > 0);
+            Assert.assertTrue(trace.getStatements().contains("SELECT * FROM foo"));
+            Assert.assertTrue(trace.getTotalNanos() >= trace.getEncodeNanos() + trace.getProbeNanos());
+        }
+    }
+
+    @Test
+    public void testSlowQueryLog() throws Exception {
+        List<LogRecord> records = new ArrayList<>();
+        Handler handler = new Handler() {
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            public void flush() {
+            }
+
+            public void close() {
+            }
+        };
+        RqliteImpl.LOGGER.addHandler(handler);
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(1, 1)) {
+            RqliteImpl rqlite = new RqliteImpl(cluster.config());
+            rqlite.setSlowQueryLog(100, 1.0);
+
+            rqlite.Query("SELECT fast", Rqlite.ReadConsistencyLevel.NONE);
+            cluster.node(0).setLatency(150, 0);
+            rqlite.Query(new ParameterizedStatement("SELECT slow WHERE password = ?", new Object[] {"hunter2"}),
+                    Rqlite.ReadConsistencyLevel.NONE);
+
+            Assert.assertEquals(1, records.size());
+            Assert.assertTrue(records.get(0).getMessage().contains("sql=SELECT slow WHERE password = ?"));
+            Assert.assertFalse(records.get(0).getMessage().contains("hunter2"));
+        } finally {
+            RqliteImpl.LOGGER.removeHandler(handler);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.rqlite.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.rqlite.DirectBufferBlobSink;
+import com.rqlite.dto.ExecuteResults;
+import com.rqlite.dto.QueryResults;
+
+public class ResultsDecoderTest {
+
+    private static InputStream json(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testDecodeExecute() throws IOException {
+        ExecuteResults results = ResultsDecoder.decodeExecute(json(
+                "{\"results\":[{\"last_insert_id\":2,\"rows_affected\":1,\"time\":0.5,\"extra\":{\"a\":[1]}},"
+                        + "{\"error\":\"near \\\"nonsense\\\": syntax error\"}],\"time\":1.25}"));
+        Assert.assertEquals(2, results.results.length);
+        Assert.assertEquals(2, results.results[0].lastInsertId);
+        Assert.assertEquals(1, results.results[0].rowsAffected);
+        Assert.assertEquals(0.5f, results.results[0].time, 0f);
+        Assert.assertNull(results.results[0].error);
+        Assert.assertEquals("near \"nonsense\": syntax error", results.results[1].error);
+        Assert.assertEquals(1.25f, results.time, 0f);
+    }
+
+    @Test
+    public void testDecodeQuery() throws IOException {
+        QueryResults rows = ResultsDecoder.decodeQuery(json(
+                "{\"results\":[{\"columns\":[\"id\",\"name\"],\"types\":[\"integer\",\"text\"],"
+                        + "\"values\":[[1,\"fiona\"],[2,null]],\"time\":0.1},"
+                        + "{\"error\":\"no such table: bar\"}],\"time\":0.25}"));
+        Assert.assertEquals(2, rows.results.length);
+        Assert.assertArrayEquals(new String[]{"id", "name"}, rows.results[0].columns);
+        Assert.assertArrayEquals(new String[]{"integer", "text"}, rows.results[0].types);
+        Assert.assertEquals(2, rows.results[0].values.length);
+        Assert.assertArrayEquals(new Object[]{new BigDecimal(1), "fiona"}, rows.results[0].values[0]);
+        Assert.assertArrayEquals(new Object[]{new BigDecimal(2), null}, rows.results[0].values[1]);
+        Assert.assertEquals("no such table: bar", rows.results[1].error);
+        Assert.assertNull(rows.results[1].values);
+        Assert.assertEquals(0.25f, rows.time, 0f);
+    }
+
+    @Test
+    public void testDecodeQueryNoColumns() throws IOException {
+        QueryResults rows = ResultsDecoder.decodeQuery(json("{\"results\":[{\"values\":[[1.5,true,\"x\"]]}]}"));
+        Assert.assertArrayEquals(new Object[]{new BigDecimal("1.5"), Boolean.TRUE, "x"}, rows.results[0].values[0]);
+    }
+
+    @Test
+    public void testDecodeQueryBlobSink() throws IOException {
+        QueryResults rows = ResultsDecoder.decodeQuery(json(
+                "{\"results\":[{\"columns\":[\"id\",\"data\"],\"types\":[\"integer\",\"blob\"],"
+                        + "\"values\":[[1,\"aGVsbG8=\"],[2,null]]}]}"), new DirectBufferBlobSink(16));
+        Object cell = rows.results[0].values[0][1];
+        Assert.assertTrue(cell instanceof ByteBuffer);
+        ByteBuffer buf = (ByteBuffer) cell;
+        Assert.assertTrue(buf.isDirect());
+        byte[] bytes = new byte[buf.remaining()];
+        buf.get(bytes);
+        Assert.assertEquals("hello", new String(bytes, StandardCharsets.UTF_8));
+        Assert.assertNull(rows.results[0].values[1][1]);
+    }
+}
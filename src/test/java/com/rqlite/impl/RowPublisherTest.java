@@ -0,0 +1,118 @@
+package com.rqlite.impl;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.rqlite.NodeUnavailableException;
+import com.rqlite.Rqlite;
+import com.rqlite.dto.ParameterizedStatement;
+import com.rqlite.load.LocalRqliteCluster;
+
+public class RowPublisherTest {
+
+    private static class Recorder implements Subscriber<Object[]> {
+        final List<Object[]> rows = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Subscription subscription;
+        volatile Throwable error;
+        volatile boolean completed;
+
+        public void onSubscribe(Subscription s) {
+            this.subscription = s;
+        }
+
+        public void onNext(Object[] row) {
+            rows.add(row);
+        }
+
+        public void onError(Throwable t) {
+            error = t;
+            done.countDown();
+        }
+
+        public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+    }
+
+    @Test
+    public void testRowsFollowDemand() throws Exception {
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(1, 5)) {
+            RowPublisher publisher = new RowPublisher(new RqliteImpl(cluster.config()), "SELECT * FROM foo",
+                    Rqlite.ReadConsistencyLevel.WEAK);
+            Recorder recorder = new Recorder();
+            publisher.subscribe(recorder);
+            Assert.assertEquals(0, cluster.node(0).requests());
+
+            recorder.subscription.request(2);
+            Assert.assertFalse(recorder.done.await(300, TimeUnit.MILLISECONDS));
+            Assert.assertEquals(2, recorder.rows.size());
+
+            recorder.subscription.request(Long.MAX_VALUE);
+            Assert.assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(recorder.completed);
+            Assert.assertEquals(5, recorder.rows.size());
+            Assert.assertEquals(new BigDecimal(5), recorder.rows.get(4)[0]);
+            Assert.assertEquals(1, cluster.node(0).requests());
+        }
+    }
+
+    @Test
+    public void testCancelAndErrors() throws Exception {
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(1, 5)) {
+            RqliteImpl rqlite = new RqliteImpl(cluster.config());
+            Recorder cancelled = new Recorder();
+            new RowPublisher(rqlite, "SELECT * FROM foo", Rqlite.ReadConsistencyLevel.WEAK).subscribe(cancelled);
+            cancelled.subscription.request(1);
+            cancelled.subscription.cancel();
+            cancelled.subscription.request(10);
+            Assert.assertFalse(cancelled.done.await(300, TimeUnit.MILLISECONDS));
+            Assert.assertTrue(cancelled.rows.size() <= 1);
+
+            Recorder invalid = new Recorder();
+            new RowPublisher(rqlite, "SELECT * FROM foo", Rqlite.ReadConsistencyLevel.WEAK).subscribe(invalid);
+            invalid.subscription.request(0);
+            Assert.assertTrue(invalid.done.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(invalid.error instanceof IllegalArgumentException);
+            Assert.assertTrue(invalid.error.getMessage().endsWith("was 0"));
+
+            cluster.node(0).stop();
+            rqlite.setTimeoutDelay(300);
+            Recorder unavailable = new Recorder();
+            new RowPublisher(rqlite, "SELECT * FROM foo", Rqlite.ReadConsistencyLevel.WEAK).subscribe(unavailable);
+            unavailable.subscription.request(1);
+            Assert.assertTrue(unavailable.done.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(unavailable.error instanceof NodeUnavailableException);
+        }
+    }
+
+    @Test
+    public void testRejectedExecutionSignalsError() throws Exception {
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(1, 5)) {
+            RowPublisher publisher = new RowPublisher(new RqliteImpl(cluster.config()),
+                    new ParameterizedStatement("SELECT * FROM foo", new Object[0]), Rqlite.ReadConsistencyLevel.WEAK, task -> {
+                        throw new RejectedExecutionException("shut down");
+                    });
+            Recorder recorder = new Recorder();
+            publisher.subscribe(recorder);
+            recorder.subscription.request(1);
+            Assert.assertTrue(recorder.done.await(0, TimeUnit.SECONDS));
+            Assert.assertTrue(recorder.error instanceof RejectedExecutionException);
+
+            recorder.error = null;
+            recorder.subscription.request(1);
+            Assert.assertNull(recorder.error);
+            Assert.assertEquals(0, cluster.node(0).requests());
+        }
+    }
+}
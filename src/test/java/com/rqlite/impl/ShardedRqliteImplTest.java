@@ -0,0 +1,50 @@
+package com.rqlite.impl;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.rqlite.Rqlite;
+import com.rqlite.dto.QueryResults;
+import com.rqlite.load.LocalRqliteCluster;
+
+public class ShardedRqliteImplTest {
+
+    @Test
+    public void testRouteAndScatter() throws Exception {
+        try (LocalRqliteCluster a = new LocalRqliteCluster(1, 2); LocalRqliteCluster b = new LocalRqliteCluster(1, 3)) {
+            ShardedRqliteImpl sharded = new ShardedRqliteImpl(Arrays.asList(
+                    new RqliteImpl(a.config()), new RqliteImpl(b.config())));
+            Assert.assertEquals(2, sharded.shardCount());
+
+            long key = 1;
+            Assert.assertEquals(1, sharded.shardFor(key));
+            sharded.Execute(key, new String[] {"INSERT INTO foo(id) VALUES(1)"}, false);
+            Assert.assertEquals(0, a.node(0).requests());
+            Assert.assertEquals(1, b.node(0).requests());
+
+            QueryResults results = sharded.QueryAll(new String[] {"SELECT * FROM foo", "SELECT * FROM bar"},
+                    Rqlite.ReadConsistencyLevel.NONE);
+            Assert.assertEquals(2, results.results.length);
+            Assert.assertArrayEquals(new String[] {"id", "name"}, results.results[0].columns);
+            Assert.assertEquals(5, results.results[0].values.length);
+            Assert.assertEquals(5, results.results[1].values.length);
+        }
+    }
+
+    @Test
+    public void testMergeError() {
+        QueryResults ok = new QueryResults();
+        ok.results = new QueryResults.Result[] {new QueryResults.Result()};
+        ok.results[0].columns = new String[] {"id"};
+        ok.results[0].values = new Object[][] {{1}};
+        QueryResults failed = new QueryResults();
+        failed.results = new QueryResults.Result[] {new QueryResults.Result()};
+        failed.results[0].error = "no such table: foo";
+
+        QueryResults merged = ShardedRqliteImpl.merge(Arrays.asList(ok, failed));
+        Assert.assertEquals("Shard 1: no such table: foo", merged.results[0].error);
+        Assert.assertNull(merged.results[0].values);
+    }
+}
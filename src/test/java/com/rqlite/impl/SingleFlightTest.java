@@ -0,0 +1,43 @@
+package com.rqlite.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.rqlite.Rqlite;
+import com.rqlite.dto.QueryResults;
+import com.rqlite.load.LocalRqliteCluster;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testIdenticalQueriesShareOneRequest() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(1, 1)) {
+            RqliteImpl rqlite = new RqliteImpl(cluster.config());
+            rqlite.setDeduplicateQueries(true);
+            cluster.node(0).setLatency(500, 0);
+
+            List<Future<QueryResults>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(pool.submit(() -> rqlite.Query("SELECT * FROM foo", Rqlite.ReadConsistencyLevel.NONE)));
+            }
+            QueryResults first = futures.get(0).get();
+            for (Future<QueryResults> f : futures) {
+                Assert.assertSame(first, f.get());
+            }
+            Assert.assertEquals(1, cluster.node(0).requests());
+
+            // different consistency levels are not shared
+            rqlite.Query("SELECT * FROM foo", Rqlite.ReadConsistencyLevel.WEAK);
+            Assert.assertEquals(2, cluster.node(0).requests());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
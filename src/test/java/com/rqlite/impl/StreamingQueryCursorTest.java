@@ -0,0 +1,87 @@
+package com.rqlite.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.rqlite.dto.QueryCursor;
+
+public class StreamingQueryCursorTest {
+
+    private static final String RESPONSE = "{\"results\":["
+            + "{\"columns\":[\"id\",\"name\"],\"types\":[\"integer\",\"text\"],\"values\":[[1,\"fiona\"],[2,\"declan\"]],\"time\":0.1},"
+            + "{\"error\":\"no such table: bar\"},"
+            + "{\"columns\":[\"name\"],\"types\":[\"text\"],\"values\":[[\"fiona\"]]}]}";
+
+    private static InputStream json(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCursor() throws IOException {
+        try (QueryCursor cursor = new StreamingQueryCursor(json(RESPONSE), null)) {
+            Assert.assertTrue(cursor.next());
+            Assert.assertArrayEquals(new String[]{"id", "name"}, cursor.columns());
+            Assert.assertArrayEquals(new Object[]{new BigDecimal(1), "fiona"}, cursor.row());
+            Assert.assertTrue(cursor.next());
+            Assert.assertArrayEquals(new Object[]{new BigDecimal(2), "declan"}, cursor.row());
+            Assert.assertFalse(cursor.next());
+
+            Assert.assertTrue(cursor.nextResult());
+            Assert.assertEquals("no such table: bar", cursor.error());
+            Assert.assertFalse(cursor.next());
+
+            Assert.assertTrue(cursor.nextResult());
+            Assert.assertNull(cursor.error());
+            Assert.assertArrayEquals(new String[]{"name"}, cursor.columns());
+            Assert.assertTrue(cursor.next());
+            Assert.assertArrayEquals(new Object[]{"fiona"}, cursor.row());
+
+            Assert.assertFalse(cursor.nextResult());
+        }
+    }
+
+    @Test
+    public void testCursorSkipsUnreadRows() throws IOException {
+        try (QueryCursor cursor = new StreamingQueryCursor(json(RESPONSE), null)) {
+            Assert.assertTrue(cursor.nextResult());
+            Assert.assertTrue(cursor.nextResult());
+            Assert.assertTrue(cursor.nextResult());
+            Assert.assertArrayEquals(new String[]{"name"}, cursor.columns());
+            Assert.assertFalse(cursor.nextResult());
+        }
+    }
+
+    @Test
+    public void testCursorSpill() throws IOException {
+        Path dir = Files.createTempDirectory("rqlite-spill-test");
+        try {
+            InputStream in = SpillFile.buffer(json(RESPONSE), 16, dir);
+            Assert.assertEquals(1, dir.toFile().list().length);
+            try (QueryCursor cursor = new StreamingQueryCursor(in, null)) {
+                Assert.assertTrue(cursor.next());
+                Assert.assertArrayEquals(new Object[]{new BigDecimal(1), "fiona"}, cursor.row());
+            }
+            Assert.assertEquals(0, dir.toFile().list().length);
+
+            in = SpillFile.buffer(json(RESPONSE), 1 << 20, dir);
+            Assert.assertEquals(0, dir.toFile().list().length);
+            try (QueryCursor cursor = new StreamingQueryCursor(in, null)) {
+                Assert.assertTrue(cursor.next());
+            }
+        } finally {
+            for (File f : dir.toFile().listFiles()) {
+                f.delete();
+            }
+            Files.delete(dir);
+        }
+    }
+}
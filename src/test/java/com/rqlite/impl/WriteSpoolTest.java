@@ -0,0 +1,178 @@
+package com.rqlite.impl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.rqlite.NodeUnavailableException;
+import com.rqlite.dto.ExecuteResults;
+import com.rqlite.load.LocalRqliteCluster;
+
+public class WriteSpoolTest {
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testBatchesAndCheckpoints() throws IOException {
+        Path file = Files.createTempFile("rqlite-spool", ".journal");
+        try {
+            try (WriteSpool spool = new WriteSpool(file, 4096)) {
+                Assert.assertFalse(spool.isPending());
+                Assert.assertTrue(spool.append(bytes("[\"INSERT 1\"]"), false));
+                Assert.assertTrue(spool.append(bytes("[[\"INSERT ?\",2],[\"INSERT ?\",3]]"), false));
+                Assert.assertTrue(spool.append(bytes("[\"INSERT 4\",\"INSERT 5\"]"), true));
+                Assert.assertTrue(spool.append(bytes("[\"INSERT 6\"]"), false));
+            }
+
+            // reopening recovers the journal
+            try (WriteSpool spool = new WriteSpool(file, 4096)) {
+                WriteSpool.Batch batch = spool.nextBatch(1 << 20);
+                Assert.assertFalse(batch.tx);
+                Assert.assertEquals(2, batch.count);
+                Assert.assertEquals("[\"INSERT 1\",[\"INSERT ?\",2],[\"INSERT ?\",3]]", new String(batch.body, StandardCharsets.UTF_8));
+                spool.commit(batch);
+
+                batch = spool.nextBatch(1 << 20);
+                Assert.assertTrue(batch.tx);
+                Assert.assertEquals("[\"INSERT 4\",\"INSERT 5\"]", new String(batch.body, StandardCharsets.UTF_8));
+            }
+
+            // the first batch stays checkpointed, the second is replayed again
+            try (WriteSpool spool = new WriteSpool(file, 4096)) {
+                WriteSpool.Batch batch = spool.nextBatch(1 << 20);
+                Assert.assertTrue(batch.tx);
+                spool.commit(batch);
+                batch = spool.nextBatch(1 << 20);
+                Assert.assertEquals("[\"INSERT 6\"]", new String(batch.body, StandardCharsets.UTF_8));
+                spool.commit(batch);
+                Assert.assertFalse(spool.isPending());
+                Assert.assertNull(spool.nextBatch(1 << 20));
+                Assert.assertFalse(spool.append(new byte[8192], false));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testCommitReclaimsSpace() throws IOException {
+        Path file = Files.createTempFile("rqlite-spool", ".journal");
+        try (WriteSpool spool = new WriteSpool(file, 2048)) {
+            byte[] record = bytes("[\"INSERT 1\"]");
+            Assert.assertTrue(spool.append(record, false));
+            // the journal never empties, yet keeps accepting writes as they are replayed
+            for (int i = 0; i < 1000; i++) {
+                Assert.assertTrue(spool.append(record, false));
+                WriteSpool.Batch batch = spool.nextBatch(record.length);
+                Assert.assertEquals(1, batch.count);
+                spool.commit(batch);
+                Assert.assertTrue(spool.isPending());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testCrashDuringCompactionLosesNothing() throws IOException {
+        Path file = Files.createTempFile("rqlite-spool", ".journal");
+        try {
+            StringBuilder large = new StringBuilder("[\"INSERT ");
+            for (int i = 0; i < 100; i++) {
+                large.append('x');
+            }
+            large.append("\"]");
+            try (WriteSpool spool = new WriteSpool(file, 4096)) {
+                Assert.assertTrue(spool.append(bytes(large.toString()), true));
+                Assert.assertTrue(spool.append(bytes("[\"INSERT 2\"]"), false));
+                Assert.assertTrue(spool.append(bytes("[\"INSERT 3\"]"), true));
+                WriteSpool.Batch batch = spool.nextBatch(1 << 20);
+                Assert.assertEquals(1, batch.count);
+                // crash after the records are copied, before the final header write
+                spool.checkpoint(batch);
+                Assert.assertTrue(spool.moveRecords());
+            }
+
+            try (WriteSpool spool = new WriteSpool(file, 4096)) {
+                WriteSpool.Batch batch = spool.nextBatch(1 << 20);
+                Assert.assertEquals("[\"INSERT 2\"]", new String(batch.body, StandardCharsets.UTF_8));
+                spool.commit(batch);
+                batch = spool.nextBatch(1 << 20);
+                Assert.assertEquals("[\"INSERT 3\"]", new String(batch.body, StandardCharsets.UTF_8));
+                spool.commit(batch);
+                Assert.assertFalse(spool.isPending());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testClientErrorsAreNotSpooled() throws Exception {
+        Path file = Files.createTempFile("rqlite-spool", ".journal");
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(2, 1)) {
+            RqliteImpl rqlite = new RqliteImpl(cluster.config());
+            rqlite.setTimeoutDelay(5000);
+            rqlite.enableWriteSpool(file, 1 << 16);
+            cluster.node(0).setRejectStatus(400);
+            cluster.node(1).setRejectStatus(400);
+
+            long start = System.currentTimeMillis();
+            ExecuteResults results = rqlite.Execute("INSERT garbage");
+            Assert.assertFalse(results.spooled);
+            Assert.assertTrue(results.results[0].error.startsWith("400"));
+
+            // also when the 4xx comes from the peer failed over to
+            cluster.node(0).stop();
+            results = rqlite.Execute("INSERT garbage");
+            Assert.assertFalse(results.spooled);
+            Assert.assertTrue(results.results[0].error.startsWith("400"));
+            Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+            rqlite.disableWriteSpool();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testSpoolAndReplay() throws Exception {
+        Path file = Files.createTempFile("rqlite-spool", ".journal");
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(1, 1)) {
+            RqliteImpl rqlite = new RqliteImpl(cluster.config());
+            rqlite.setTimeoutDelay(200);
+            rqlite.enableWriteSpool(file, 1 << 16);
+
+            cluster.node(0).stop();
+            ExecuteResults results = rqlite.Execute(new String[]{"INSERT 1", "INSERT 2"}, false);
+            Assert.assertTrue(results.spooled);
+            Assert.assertEquals(2, results.results.length);
+            Assert.assertTrue(rqlite.Execute("INSERT 3").spooled);
+            int before = cluster.node(0).requests();
+
+            cluster.node(0).restart();
+            long deadline = System.currentTimeMillis() + 10000;
+            while (rqlite.Execute("INSERT 4").spooled && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            Assert.assertTrue(cluster.node(0).requests() > before);
+
+            rqlite.disableWriteSpool();
+            cluster.node(0).stop();
+            try {
+                rqlite.Execute("INSERT 5");
+                Assert.fail("spool should be disabled");
+            } catch (NodeUnavailableException e) {
+            }
+        } catch (NodeUnavailableException e) {
+            Assert.fail(e.getMessage());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.rqlite.jdbc;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.rqlite.load.LocalRqliteCluster;
+
+public class RqliteDriverTest {
+
+    @Test
+    public void testStatementParsing() {
+        Assert.assertEquals(3, RqlitePreparedStatement.countParameters("INSERT INTO t(a, b, c) VALUES(?, ?, ?)"));
+        Assert.assertEquals(1, RqlitePreparedStatement.countParameters("SELECT * FROM t WHERE a = '?' AND b = ?"));
+        Assert.assertTrue(RqliteStatement.isQuery("  select * from t"));
+        Assert.assertTrue(RqliteStatement.isQuery("(SELECT 1)"));
+        Assert.assertFalse(RqliteStatement.isQuery("INSERT INTO t VALUES(1)"));
+    }
+
+    @Test
+    public void testAcceptsURL() throws SQLException {
+        RqliteDriver driver = new RqliteDriver();
+        Assert.assertTrue(driver.acceptsURL("jdbc:rqlite:http://localhost:4001"));
+        Assert.assertFalse(driver.acceptsURL("jdbc:sqlite:foo.db"));
+        Assert.assertNull(driver.connect("jdbc:sqlite:foo.db", null));
+    }
+
+    @Test
+    public void testMetaData() throws Exception {
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(1, 1)) {
+            String url = "jdbc:rqlite:config:" + cluster.config();
+            Properties info = new Properties();
+            info.setProperty("user", "flyway");
+            try (Connection conn = new RqliteDriver().connect(url, info)) {
+                DatabaseMetaData meta = conn.getMetaData();
+                Assert.assertEquals(url, meta.getURL());
+                Assert.assertEquals("flyway", meta.getUserName());
+                Assert.assertEquals("rqlite", meta.getDatabaseProductName());
+                Assert.assertEquals("local-standin", meta.getDatabaseProductVersion());
+                Assert.assertEquals("0.1", meta.getDriverVersion());
+                Assert.assertSame(conn, meta.getConnection());
+                try (ResultSet rs = meta.getTableTypes()) {
+                    Assert.assertTrue(rs.next());
+                    Assert.assertEquals("TABLE", rs.getString("TABLE_TYPE"));
+                }
+                try (ResultSet rs = meta.getImportedKeys(null, null, "foo")) {
+                    Assert.assertFalse(rs.next());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBatchAndQuery() throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:rqlite:http://localhost:4001")) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("CREATE TABLE jdbc_foo (id integer not null primary key, name text, score real)");
+            }
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO jdbc_foo(name, score) VALUES(?, ?)")) {
+                ps.setString(1, "fiona");
+                ps.setDouble(2, 1.5);
+                ps.addBatch();
+                ps.setString(1, "declan");
+                ps.setDouble(2, 2.5);
+                ps.addBatch();
+                Assert.assertArrayEquals(new int[]{1, 1}, ps.executeBatch());
+            }
+            DatabaseMetaData meta = conn.getMetaData();
+            try (ResultSet rs = meta.getTables(null, null, "jdbc\\_foo", new String[]{"TABLE"})) {
+                Assert.assertTrue(rs.next());
+                Assert.assertEquals("jdbc_foo", rs.getString("TABLE_NAME"));
+                Assert.assertFalse(rs.next());
+            }
+            try (ResultSet rs = meta.getColumns(null, null, "jdbc\\_foo", "%")) {
+                Assert.assertTrue(rs.next());
+                Assert.assertEquals("id", rs.getString("COLUMN_NAME"));
+                Assert.assertEquals(Types.BIGINT, rs.getInt("DATA_TYPE"));
+                Assert.assertEquals("NO", rs.getString("IS_NULLABLE"));
+                Assert.assertTrue(rs.next());
+                Assert.assertEquals("name", rs.getString("COLUMN_NAME"));
+                Assert.assertEquals(Types.VARCHAR, rs.getInt("DATA_TYPE"));
+                Assert.assertTrue(rs.next());
+                Assert.assertEquals(3, rs.getInt("ORDINAL_POSITION"));
+                Assert.assertFalse(rs.next());
+            }
+            try (PreparedStatement ps = conn.prepareStatement("SELECT id, name, score FROM jdbc_foo WHERE score > ? ORDER BY id")) {
+                ps.setDouble(1, 1.0);
+                try (ResultSet rs = ps.executeQuery()) {
+                    Assert.assertEquals(3, rs.getMetaData().getColumnCount());
+                    Assert.assertTrue(rs.next());
+                    Assert.assertEquals(1, rs.getLong("id"));
+                    Assert.assertEquals("fiona", rs.getString(2));
+                    Assert.assertEquals(1.5, rs.getDouble("score"), 0.0);
+                    Assert.assertTrue(rs.next());
+                    Assert.assertEquals("declan", rs.getString("name"));
+                    Assert.assertFalse(rs.next());
+                }
+            }
+        } finally {
+            try (Connection conn = DriverManager.getConnection("jdbc:rqlite:http://localhost:4001");
+                 Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DROP TABLE jdbc_foo");
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.rqlite.load;
+
+import java.io.PrintStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import com.rqlite.NodeUnavailableException;
+import com.rqlite.Rqlite;
+import com.rqlite.RqliteFactory;
+import com.rqlite.dto.ExecuteResults;
+import com.rqlite.dto.ParameterizedStatement;
+import com.rqlite.dto.QueryResults;
+
+/**
+ * LoadGenerator drives a read/write mix through RqliteFactory.connect at a
+ * fixed target rate and reports throughput and latency percentiles.
+ *
+ * Requests are issued open-loop: each has an intended start time on the rate
+ * schedule and its latency is measured from that time, so stalls such as a
+ * failover show up in the percentiles instead of silently lowering the rate.
+ * Without --config it runs against a LocalRqliteCluster, which can inject
+ * latency and failures and stop the first node part way through the run.
+ *
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.rqlite.load.LoadGenerator -Dexec.args="--rate 2000 --seconds 30 --kill-after 10"
+ * </pre>
+ */
+public class LoadGenerator {
+
+    static class Options {
+        String config;
+        int nodes = 3;
+        double rate = 1000;
+        int seconds = 30;
+        int threads = 64;
+        double readRatio = 0.8;
+        int rows = 10;
+        int latencyMillis = 1;
+        int jitterMillis = 1;
+        double failureRate = 0;
+        int killAfter = -1;
+        Rqlite.ReadConsistencyLevel level = Rqlite.ReadConsistencyLevel.WEAK;
+
+        static Options parse(String[] args) {
+            Options o = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String value = i + 1 < args.length ? args[i + 1] : null;
+                switch (args[i]) {
+                    case "--config": o.config = value; break;
+                    case "--nodes": o.nodes = Integer.parseInt(value); break;
+                    case "--rate": o.rate = Double.parseDouble(value); break;
+                    case "--seconds": o.seconds = Integer.parseInt(value); break;
+                    case "--threads": o.threads = Integer.parseInt(value); break;
+                    case "--read-ratio": o.readRatio = Double.parseDouble(value); break;
+                    case "--rows": o.rows = Integer.parseInt(value); break;
+                    case "--latency-ms": o.latencyMillis = Integer.parseInt(value); break;
+                    case "--jitter-ms": o.jitterMillis = Integer.parseInt(value); break;
+                    case "--failure-rate": o.failureRate = Double.parseDouble(value); break;
+                    case "--kill-after": o.killAfter = Integer.parseInt(value); break;
+                    case "--level": o.level = Rqlite.ReadConsistencyLevel.valueOf(value.toUpperCase()); break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+                i++;
+            }
+            return o;
+        }
+    }
+
+    static class Report {
+        final Histogram reads = new Histogram(TimeUnit.MINUTES.toNanos(5), 3);
+        final Histogram writes = new Histogram(TimeUnit.MINUTES.toNanos(5), 3);
+        long errors;
+        double seconds;
+
+        long count() {
+            return reads.getTotalCount() + writes.getTotalCount();
+        }
+
+        void print(PrintStream out) {
+            out.printf("%n%d requests in %.1fs (%.0f req/s), %d errors%n", count(), seconds, count() / seconds, errors);
+            print(out, "read", reads);
+            print(out, "write", writes);
+        }
+
+        private static void print(PrintStream out, String name, Histogram h) {
+            if (h.getTotalCount() == 0) {
+                return;
+            }
+            out.printf("%-6s n=%-8d p50=%8.2fms p90=%8.2fms p99=%8.2fms p99.9=%8.2fms max=%8.2fms%n", name,
+                    h.getTotalCount(), ms(h.getValueAtPercentile(50)), ms(h.getValueAtPercentile(90)),
+                    ms(h.getValueAtPercentile(99)), ms(h.getValueAtPercentile(99.9)), ms(h.getMaxValue()));
+        }
+    }
+
+    static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Report report;
+        if (options.config != null) {
+            report = run(options, options.config, null);
+        } else {
+            try (LocalRqliteCluster cluster = new LocalRqliteCluster(options.nodes, options.rows)) {
+                for (int i = 0; i < cluster.size(); i++) {
+                    cluster.node(i).setLatency(options.latencyMillis, options.jitterMillis);
+                    cluster.node(i).setFailureRate(options.failureRate);
+                }
+                report = run(options, cluster.config(), cluster);
+            }
+        }
+        report.print(System.out);
+        System.exit(0);
+    }
+
+    static Report run(Options options, String config, LocalRqliteCluster cluster) throws Exception {
+        Rqlite rqlite = RqliteFactory.connect(config);
+        if (cluster == null) {
+            rqlite.Execute("CREATE TABLE IF NOT EXISTS loadtest (id integer not null primary key, name text)");
+        }
+
+        Recorder reads = new Recorder(3);
+        Recorder writes = new Recorder(3);
+        AtomicLong errors = new AtomicLong();
+        ExecutorService workers = Executors.newFixedThreadPool(options.threads);
+        PrintStream out = System.out;
+
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / options.rate);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(options.seconds);
+        long nextReport = start + TimeUnit.SECONDS.toNanos(1);
+        long killAt = options.killAfter >= 0 && cluster != null ? start + TimeUnit.SECONDS.toNanos(options.killAfter) : Long.MAX_VALUE;
+
+        Report report = new Report();
+        out.printf("%-6s %10s %10s %10s %10s %8s%n", "sec", "req/s", "p50(ms)", "p99(ms)", "max(ms)", "errors");
+        long lastErrors = 0;
+        long intended = start;
+        while (intended < end) {
+            long now = System.nanoTime();
+            if (now < intended) {
+                LockSupport.parkNanos(intended - now);
+                continue;
+            }
+            if (now >= killAt) {
+                cluster.node(0).stop();
+                out.printf("-- stopped node 0 on port %d%n", cluster.node(0).port());
+                killAt = Long.MAX_VALUE;
+            }
+            if (now >= nextReport) {
+                Histogram r = reads.getIntervalHistogram();
+                Histogram w = writes.getIntervalHistogram();
+                report.reads.add(r);
+                report.writes.add(w);
+                Histogram both = r.copy();
+                both.add(w);
+                long e = errors.get();
+                out.printf("%-6d %10d %10.2f %10.2f %10.2f %8d%n", TimeUnit.NANOSECONDS.toSeconds(nextReport - start),
+                        both.getTotalCount(), ms(both.getValueAtPercentile(50)), ms(both.getValueAtPercentile(99)),
+                        ms(both.getMaxValue()), e - lastErrors);
+                lastErrors = e;
+                nextReport += TimeUnit.SECONDS.toNanos(1);
+            }
+            final long scheduled = intended;
+            final boolean read = ThreadLocalRandom.current().nextDouble() < options.readRatio;
+            workers.execute(() -> {
+                boolean ok;
+                try {
+                    ok = read ? query(rqlite, options.level) : execute(rqlite);
+                } catch (NodeUnavailableException | RuntimeException e) {
+                    ok = false;
+                }
+                long latency = System.nanoTime() - scheduled;
+                (read ? reads : writes).recordValue(Math.min(latency, TimeUnit.MINUTES.toNanos(5)));
+                if (!ok) {
+                    errors.incrementAndGet();
+                }
+            });
+            intended += interval;
+        }
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+        report.seconds = (System.nanoTime() - start) / 1e9;
+        report.reads.add(reads.getIntervalHistogram());
+        report.writes.add(writes.getIntervalHistogram());
+        report.errors = errors.get();
+        return report;
+    }
+
+    private static boolean query(Rqlite rqlite, Rqlite.ReadConsistencyLevel level) throws NodeUnavailableException {
+        long id = ThreadLocalRandom.current().nextLong(1, 1000);
+        QueryResults results = rqlite.Query(new ParameterizedStatement("SELECT * FROM loadtest WHERE id >= ? LIMIT 10",
+                new Object[]{id}), level);
+        return results != null && results.results != null && results.results[0].error == null;
+    }
+
+    private static boolean execute(Rqlite rqlite) throws NodeUnavailableException {
+        ExecuteResults results = rqlite.Execute(new ParameterizedStatement("INSERT INTO loadtest(name) VALUES(?)",
+                new Object[]{"load-" + ThreadLocalRandom.current().nextInt()}));
+        return results != null && results.results != null && results.results[0].error == null;
+    }
+}
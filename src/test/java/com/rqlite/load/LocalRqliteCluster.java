@@ -0,0 +1,312 @@
+package com.rqlite.load;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * LocalRqliteCluster runs in-process stand-ins for rqlite nodes that speak the
+ * /db/execute, /db/query and /status endpoints. SQL is not evaluated: executes
+ * report one affected row per statement and queries return a fixed result set.
+ * Each node can add latency, fail a fraction of requests, or be stopped and
+ * restarted to exercise failover.
+ */
+public class LocalRqliteCluster implements AutoCloseable {
+
+    public static final String VERSION = "local-standin";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final List<Node> nodes = new ArrayList<>();
+    private final Path config;
+
+    public LocalRqliteCluster(int size, int rowsPerQuery) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            Node node = new Node(rowsPerQuery);
+            node.start(0);
+            nodes.add(node);
+            sb.append("http,localhost,").append(node.port).append('\n');
+        }
+        config = Files.createTempFile("rqlite-local-", ".config");
+        Files.write(config, sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Config returns a peers file for RqliteFactory.connect listing every node. */
+    public String config() {
+        return config.toString();
+    }
+
+    public Node node(int i) {
+        return nodes.get(i);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Node node : nodes) {
+            node.stop();
+        }
+        Files.deleteIfExists(config);
+    }
+
+    public static class Node {
+        private final int rowsPerQuery;
+        private final AtomicLong lastInsertId = new AtomicLong();
+        private final AtomicInteger requests = new AtomicInteger();
+        private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "rqlite-standin");
+            t.setDaemon(true);
+            return t;
+        });
+
+        private volatile HttpServer server;
+        private volatile int port;
+        private volatile int latencyMillis;
+        private volatile int jitterMillis;
+        private volatile double failureRate;
+        private volatile boolean leaderless;
+        private volatile int rejectStatus;
+        private volatile String lastQuery;
+        private volatile Node redirectTo;
+
+        Node(int rowsPerQuery) {
+            this.rowsPerQuery = rowsPerQuery;
+        }
+
+        synchronized void start(int bindPort) throws IOException {
+            HttpServer s = HttpServer.create(new InetSocketAddress("localhost", bindPort), 128);
+            s.createContext("/db/execute", this::execute);
+            s.createContext("/db/query", this::query);
+            s.createContext("/status", this::status);
+            s.setExecutor(executor);
+            s.start();
+            this.server = s;
+            this.port = s.getAddress().getPort();
+        }
+
+        /** Stop closes the node's listener so connections to it are refused. */
+        public synchronized void stop() {
+            if (server != null) {
+                server.stop(0);
+                server = null;
+            }
+        }
+
+        /** Restart brings a stopped node back on its original port. */
+        public synchronized void restart() throws IOException {
+            if (server == null) {
+                start(port);
+            }
+        }
+
+        public int port() {
+            return port;
+        }
+
+        /** Requests returns how many requests this node has received. */
+        public int requests() {
+            return requests.get();
+        }
+
+        /** LastQuery returns the body of the last /db/query request, or null. */
+        public String lastQuery() {
+            return lastQuery;
+        }
+
+        /** SetLatency delays every response by millis plus up to jitter random millis. */
+        public void setLatency(int millis, int jitter) {
+            this.latencyMillis = millis;
+            this.jitterMillis = jitter;
+        }
+
+        /** SetFailureRate makes the given fraction of requests fail with a 503. */
+        public void setFailureRate(double rate) {
+            this.failureRate = rate;
+        }
+
+        /**
+         * SetLeaderless makes /db/execute and /db/query fail with a 503 while
+         * /status still answers, like a node cut off from its leader.
+         */
+        public void setLeaderless(boolean leaderless) {
+            this.leaderless = leaderless;
+        }
+
+        private boolean delayOrFail(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            int delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextInt(jitterMillis + 1) : 0);
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * SetRedirectTo makes /db/execute and /db/query answer with a 301 to the
+         * same URL on peer, as a follower redirects to its leader. Null stops
+         * redirecting.
+         */
+        public void setRedirectTo(Node peer) {
+            this.redirectTo = peer;
+        }
+
+        private boolean redirect(HttpExchange exchange) throws IOException {
+            Node peer = redirectTo;
+            if (peer == null) {
+                return false;
+            }
+            exchange.getResponseHeaders().add("Location", "http://localhost:" + peer.port + exchange.getRequestURI());
+            exchange.sendResponseHeaders(301, -1);
+            exchange.close();
+            return true;
+        }
+
+        /**
+         * SetRejectStatus makes /db/execute and /db/query fail with status, such
+         * as 400 for a malformed request. Zero, the default, stops rejecting.
+         */
+        public void setRejectStatus(int status) {
+            this.rejectStatus = status;
+        }
+
+        private boolean rejectLeaderless(HttpExchange exchange) throws IOException {
+            int status = leaderless ? 503 : rejectStatus;
+            if (status == 0) {
+                return false;
+            }
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return true;
+        }
+
+        private static int countStatements(InputStream in) throws IOException {
+            int count = 0;
+            try (JsonParser p = JSON_FACTORY.createParser(in)) {
+                if (p.nextToken() != JsonToken.START_ARRAY) {
+                    return 0;
+                }
+                JsonToken t;
+                while ((t = p.nextToken()) != JsonToken.END_ARRAY && t != null) {
+                    p.skipChildren();
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private static boolean timings(HttpExchange exchange) {
+            String q = exchange.getRequestURI().getQuery();
+            return q != null && q.contains("timings=true");
+        }
+
+        private void execute(HttpExchange exchange) throws IOException {
+            if (delayOrFail(exchange) || redirect(exchange) || rejectLeaderless(exchange)) {
+                return;
+            }
+            int n = countStatements(exchange.getRequestBody());
+            StringBuilder sb = new StringBuilder("{\"results\":[");
+            for (int i = 0; i < n; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append("{\"last_insert_id\":").append(lastInsertId.incrementAndGet()).append(",\"rows_affected\":1");
+                if (timings(exchange)) {
+                    sb.append(",\"time\":0.0001");
+                }
+                sb.append('}');
+            }
+            sb.append(']');
+            if (timings(exchange)) {
+                sb.append(",\"time\":0.0002");
+            }
+            sb.append('}');
+            respond(exchange, sb.toString());
+        }
+
+        private void query(HttpExchange exchange) throws IOException {
+            if (delayOrFail(exchange) || redirect(exchange) || rejectLeaderless(exchange)) {
+                return;
+            }
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            for (int r; (r = exchange.getRequestBody().read(buf)) > 0;) {
+                body.write(buf, 0, r);
+            }
+            lastQuery = new String(body.toByteArray(), StandardCharsets.UTF_8);
+            int n = countStatements(new ByteArrayInputStream(body.toByteArray()));
+            StringBuilder sb = new StringBuilder("{\"results\":[");
+            for (int i = 0; i < n; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append("{\"columns\":[\"id\",\"name\"],\"types\":[\"integer\",\"text\"],\"values\":[");
+                for (int r = 1; r <= rowsPerQuery; r++) {
+                    if (r > 1) {
+                        sb.append(',');
+                    }
+                    sb.append('[').append(r).append(",\"row-").append(r).append("\"]");
+                }
+                sb.append(']');
+                if (timings(exchange)) {
+                    sb.append(",\"time\":0.0001");
+                }
+                sb.append('}');
+            }
+            sb.append(']');
+            if (timings(exchange)) {
+                sb.append(",\"time\":0.0002");
+            }
+            sb.append('}');
+            respond(exchange, sb.toString());
+        }
+
+        private void status(HttpExchange exchange) throws IOException {
+            if (delayOrFail(exchange)) {
+                return;
+            }
+            exchange.getResponseHeaders().add("X-Rqlite-Version", VERSION);
+            respond(exchange, "{}");
+        }
+
+        private static void respond(HttpExchange exchange, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
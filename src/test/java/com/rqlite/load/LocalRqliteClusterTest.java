@@ -0,0 +1,43 @@
+package com.rqlite.load;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.rqlite.NodeUnavailableException;
+import com.rqlite.Rqlite;
+import com.rqlite.RqliteFactory;
+import com.rqlite.dto.ExecuteResults;
+import com.rqlite.dto.QueryResults;
+
+public class LocalRqliteClusterTest {
+
+    @Test
+    public void testStandInFailover() throws IOException, NodeUnavailableException {
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(3, 2)) {
+            Rqlite rqlite = RqliteFactory.connect(cluster.config());
+            Assert.assertEquals(LocalRqliteCluster.VERSION, rqlite.Ping().version);
+
+            ExecuteResults results = rqlite.Execute(new String[]{"INSERT 1", "INSERT 2"}, false);
+            Assert.assertEquals(2, results.results.length);
+            Assert.assertEquals(2, results.results[1].lastInsertId);
+
+            cluster.node(0).stop();
+            QueryResults rows = rqlite.Query("SELECT * FROM foo", Rqlite.ReadConsistencyLevel.WEAK);
+            Assert.assertEquals(1, rows.results.length);
+            Assert.assertArrayEquals(new Object[]{new BigDecimal(2), "row-2"}, rows.results[0].values[1]);
+        }
+    }
+
+    @Test
+    public void testLoadGenerator() throws Exception {
+        LoadGenerator.Options options = LoadGenerator.Options.parse(new String[]{"--rate", "200", "--seconds", "1", "--threads", "8"});
+        try (LocalRqliteCluster cluster = new LocalRqliteCluster(2, 1)) {
+            LoadGenerator.Report report = LoadGenerator.run(options, cluster.config(), cluster);
+            Assert.assertEquals(0, report.errors);
+            Assert.assertTrue(report.count() >= 150);
+        }
+    }
+}